@@ -0,0 +1,68 @@
+package cn.myh.java.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 豆瓣页面解析：Top250 列表页（25 条）和电影详情页，每次调用解析一整页
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DoubanParseBenchmark {
+    private static final MethodHandle PARSE_HTML_TO_MOVIES =
+            Fixtures.staticMethod("DataCrawler", "parseHtmlToMovies", String.class, List.class);
+    private static final MethodHandle PARSE_MOVIE_IDS =
+            Fixtures.staticMethod("EnhancedDataCrawler", "parseMovieIds", String.class);
+    private static final MethodHandle PARSE_MOVIE_DETAIL =
+            Fixtures.staticMethod("EnhancedDataCrawler", "parseMovieDetail", String.class);
+
+    private String listPage;
+    private String detailPage;
+
+    @Setup
+    public void setup() throws Throwable {
+        listPage = Fixtures.html("douban-top250.html");
+        detailPage = Fixtures.html("douban-subject.html");
+        // 样本与选择器不匹配时基准没有意义，先确认能解析出数据
+        List<Object> movies = new ArrayList<>();
+        PARSE_HTML_TO_MOVIES.invoke(listPage, movies);
+        List<?> ids = (List<?>) PARSE_MOVIE_IDS.invoke(listPage);
+        if (movies.size() != 25 || ids.size() != 25 || PARSE_MOVIE_DETAIL.invoke(detailPage) == null) {
+            throw new IllegalStateException("页面样本解析结果不完整: 列表 " + movies.size() + " 条，ID " + ids.size() + " 个");
+        }
+    }
+
+    @Benchmark
+    public List<Object> parseHtmlToMovies() throws Throwable {
+        List<Object> movies = new ArrayList<>(25);
+        PARSE_HTML_TO_MOVIES.invoke(listPage, movies);
+        return movies;
+    }
+
+    @Benchmark
+    public Object parseMovieIds() throws Throwable {
+        return PARSE_MOVIE_IDS.invoke(listPage);
+    }
+
+    @Benchmark
+    public Object parseMovieDetail() throws Throwable {
+        return PARSE_MOVIE_DETAIL.invoke(detailPage);
+    }
+}
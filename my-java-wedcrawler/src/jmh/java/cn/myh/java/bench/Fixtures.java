@@ -0,0 +1,44 @@
+package cn.myh.java.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基准测试公用：读取 fixtures 目录下的页面样本，取得爬虫类中的私有静态方法
+ */
+final class Fixtures {
+    private Fixtures() {}
+
+    /**
+     * 读取 src/jmh/resources/fixtures 下的页面样本（UTF-8）
+     */
+    static String html(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到页面样本: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 爬虫的解析方法都是私有静态方法（DataCrawler 等还在默认包中），通过反射取得后转成 MethodHandle，
+     * 存入 static final 字段后调用开销可被 JIT 消除，测到的就是方法本身
+     */
+    static MethodHandle staticMethod(String className, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = Class.forName(className).getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法取得 " + className + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package cn.myh.java.bench;
+
+import cn.myh.java.BatchUpsertWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * H2 批量写入吞吐量（条/秒）
+ * 表结构和 MERGE 语句与 DataCrawler 的 movies 表一致，数据库为内存模式，只测语句执行而不受磁盘影响。
+ * writer 走 BatchUpsertWriter（含写线程交接），jdbcBatch 在同一连接上直接 executeBatch 作为对照。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class H2BatchInsertBenchmark {
+    private static final int ROWS = 1000; // 每次调用写入的条数
+    private static final String JDBC_URL = "jdbc:h2:mem:bench_movies;DB_CLOSE_DELAY=-1";
+    private static final String CREATE_SQL =
+            "CREATE TABLE IF NOT EXISTS movies (subject_id VARCHAR(20), title VARCHAR(255), rating DOUBLE, votes INT)";
+    private static final String INDEX_SQL =
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_movies_subject_id ON movies(subject_id)";
+    private static final String UPSERT_SQL =
+            "MERGE INTO movies (subject_id, title, rating, votes) KEY (subject_id) VALUES (?, ?, ?, ?)";
+
+    @Param({"25", "250"})
+    public int batchSize;
+
+    private Connection conn; // 保持一个连接，内存库在基准期间不被释放
+    private long nextId;     // 每条使用新的 subject_id，测的是插入而不是更新
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection(JDBC_URL);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CREATE_SQL);
+            stmt.executeUpdate(INDEX_SQL);
+        }
+        conn.setAutoCommit(false); // 与 BatchUpsertWriter 一样每批提交一次
+    }
+
+    // 每轮清空，避免表越来越大影响后面几轮的结果
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE movies");
+        }
+        conn.commit();
+        nextId = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE movies");
+        }
+        conn.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long writer() throws InterruptedException {
+        List<String> initSql = Collections.singletonList(CREATE_SQL);
+        BatchUpsertWriter<Long> writer = new BatchUpsertWriter<>("bench-writer", JDBC_URL, initSql, UPSERT_SQL,
+                H2BatchInsertBenchmark::bind, batchSize, 2000);
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                writer.submit(nextId++);
+            }
+        } finally {
+            writer.close();
+        }
+        return writer.writtenCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int jdbcBatch() throws SQLException {
+        int written = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (int i = 0; i < ROWS; i++) {
+                bind(pstmt, nextId++);
+                pstmt.addBatch();
+                if ((i + 1) % batchSize == 0 || i == ROWS - 1) {
+                    for (int n : pstmt.executeBatch()) written += n;
+                    conn.commit();
+                }
+            }
+        }
+        return written;
+    }
+
+    private static void bind(PreparedStatement pstmt, long id) throws SQLException {
+        pstmt.setString(1, String.valueOf(1000000 + id));
+        pstmt.setString(2, "电影" + id);
+        pstmt.setDouble(3, 8.0 + (id % 20) / 10.0);
+        pstmt.setInt(4, (int) (id * 37 % 3000000));
+    }
+}
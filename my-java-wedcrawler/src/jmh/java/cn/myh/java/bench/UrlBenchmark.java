@@ -0,0 +1,119 @@
+package cn.myh.java.bench;
+
+import cn.myh.java.LinkScanner;
+import cn.myh.java.UrlCanonicalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 链接处理：以昵图网图库页上的全部链接为输入，测链接发现、URL 规范化、主机提取、
+ * 同站校验和优先级计算。每次调用处理整页链接，结果为处理一页所需的时间。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBenchmark {
+    private static final String PAGE_URL = "https://www.nipic.com/photo/renwu/index.html";
+    private static final MethodHandle IS_VALID_URL =
+            Fixtures.staticMethod("cn.myh.java.AutoImaCrawler", "isValidUrl", String.class, String.class);
+    private static final MethodHandle CALCULATE_URL_PRIORITY =
+            Fixtures.staticMethod("cn.myh.java.AutoImaCrawler", "calculateUrlPriority", String.class, int.class, boolean.class);
+
+    private String page;
+    private String baseHost;
+    private String[] hrefs;      // 页面上的原始 href
+    private String[] texts;      // 对应的链接文字
+    private int[] depths;
+    private boolean[] hasImages;
+    private String[] urls;       // 解析并规范化后的绝对地址
+
+    @Setup
+    public void setup() throws Exception {
+        page = Fixtures.html("nipic-gallery.html");
+        baseHost = UrlCanonicalizer.host(PAGE_URL);
+        List<String> hrefList = new ArrayList<>();
+        List<String> textList = new ArrayList<>();
+        List<Integer> depthList = new ArrayList<>();
+        List<Boolean> imageList = new ArrayList<>();
+        LinkScanner.scan(new StringReader(page), (href, text, depth, hasImage) -> {
+            hrefList.add(href);
+            textList.add(text);
+            depthList.add(depth);
+            imageList.add(hasImage);
+        });
+        int n = hrefList.size();
+        hrefs = hrefList.toArray(new String[0]);
+        texts = textList.toArray(new String[0]);
+        depths = new int[n];
+        hasImages = new boolean[n];
+        urls = new String[n];
+        for (int i = 0; i < n; i++) {
+            depths[i] = depthList.get(i);
+            hasImages[i] = imageList.get(i);
+            urls[i] = UrlCanonicalizer.resolve(PAGE_URL, hrefs[i]);
+        }
+    }
+
+    /** 流式扫描整页，发现链接和图片 */
+    @Benchmark
+    public void scanLinks(Blackhole bh) throws Exception {
+        LinkScanner.scan(new StringReader(page), new LinkScanner.Listener() {
+            @Override
+            public void onLink(String href, String text, int depth, boolean hasImage) {
+                bh.consume(href);
+            }
+
+            @Override
+            public void onImage(String src, String dataSrc) {
+                bh.consume(dataSrc);
+            }
+        });
+    }
+
+    /** 相对地址解析为绝对地址并规范化 */
+    @Benchmark
+    public void resolve(Blackhole bh) {
+        for (String href : hrefs) {
+            bh.consume(UrlCanonicalizer.resolve(PAGE_URL, href));
+        }
+    }
+
+    @Benchmark
+    public void host(Blackhole bh) {
+        for (String url : urls) {
+            if (url != null) bh.consume(UrlCanonicalizer.host(url));
+        }
+    }
+
+    @Benchmark
+    public void isValidUrl(Blackhole bh) throws Throwable {
+        for (String url : urls) {
+            bh.consume((boolean) IS_VALID_URL.invokeExact(url, baseHost));
+        }
+    }
+
+    @Benchmark
+    public void calculateUrlPriority(Blackhole bh) throws Throwable {
+        for (int i = 0; i < texts.length; i++) {
+            bh.consume((int) CALCULATE_URL_PRIORITY.invokeExact(texts[i], depths[i], hasImages[i]));
+        }
+    }
+}
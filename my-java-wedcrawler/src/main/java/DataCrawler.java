@@ -1,12 +1,17 @@
-import org.apache.http.client.methods.CloseableHttpResponse;
+import cn.myh.java.BatchUpsertWriter;
+import cn.myh.java.ChartExporter;
+import cn.myh.java.ExtractionRules;
+import cn.myh.java.HostScheduler;
+import cn.myh.java.HttpCache;
+import cn.myh.java.HttpClientPool;
+import cn.myh.java.MovieAggregator;
+import cn.myh.java.MovieColumns;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartFrame;
 import org.jfree.chart.JFreeChart;
@@ -16,11 +21,13 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DataCrawler {
 
@@ -32,14 +39,29 @@ public class DataCrawler {
     private static final int MAX_RETRY = 3;
     private static List<String> userAgents = new ArrayList<>();
     private static Random random = new Random();
+    private static final HostScheduler scheduler = new HostScheduler(1000, 2000); // 同一主机请求间隔 1~3 秒
+    private static final Pattern SUBJECT_ID_PATTERN = Pattern.compile("/subject/(\\d+)");
+    // 列表页每个条目的抽取规则，选择器只解析一次
+    private static final Evaluator LIST_ITEM = ExtractionRules.selector("div.item");
+    private static final ExtractionRules LIST_ITEM_RULES = ExtractionRules.builder()
+            .attr("href", "div.hd a[href]", "href")
+            .text("title", "span.title")
+            .text("rating", "span.rating_num")
+            .text("votes", "span[property='v:votes'], .star span:containsOwn(人评价)")
+            .build();
+    private static final int DB_BATCH_SIZE = 25;       // 每批写库条数（一页）
+    private static final long DB_BATCH_DELAY_MS = 2000; // 一批最长等待时间
+    private static int missingIdCount = 0; // 解析不出条目ID、未写入数据库的电影数
 
     // ==================== 电影实体类 ====================
     private static class Movie {
+        String subjectId; // 豆瓣条目ID
         String title;
         double rating;
         int votes;
 
-        public Movie(String title, double rating, int votes) {
+        public Movie(String subjectId, String title, double rating, int votes) {
+            this.subjectId = subjectId;
             this.title = title;
             this.rating = rating;
             this.votes = votes;
@@ -48,12 +70,38 @@ public class DataCrawler {
 
     // ==================== Main 入口 ====================
     public static void main(String[] args) {
+        // --headless 或无显示环境：图表保存为 PNG，不打开窗口
+        boolean headless = ChartExporter.useHeadless(args);
+        long startTime = System.nanoTime();
         initUserAgents();
         createOutputDir();
-        List<Movie> movies = crawlTop250();
-        saveToDatabase(movies);
-        showOptimizedChart(movies);
-        generateTextReport(movies);
+        // 边抓取边写库，按条目ID合并，重复运行不会产生重复记录
+        BatchUpsertWriter<Movie> dbWriter = newMovieWriter();
+        MovieColumns movies;
+        try {
+            movies = crawlTop250(dbWriter);
+        } finally {
+            dbWriter.close(); // 等待剩余批次写完
+        }
+        removeLegacyRows(); // 本次写入的带ID记录已取代对应的旧版记录
+        System.out.println("[SUCCESS] 数据存储完成，" + dbWriter.stats());
+        if (missingIdCount > 0) {
+            System.err.printf("[WARN] %d 部电影缺少条目ID，未写入数据库%n", missingIdCount);
+        }
+        // 一次遍历得到报告和图表所需的全部分布
+        MovieAggregator.Result stats = MovieAggregator.aggregate(movies);
+        JFreeChart chart = buildRatingChart(stats);
+        if (headless) {
+            // 图表在后台渲染，同时生成文本报告
+            CompletableFuture<List<Path>> rendering = ChartExporter.renderAsync(
+                    Collections.singletonMap("rating_distribution", chart), Paths.get(OUTPUT_DIR));
+            generateTextReport(stats);
+            rendering.join().forEach(path -> System.out.println("[SUCCESS] 图表已保存: " + path));
+        } else {
+            showOptimizedChart(chart);
+            generateTextReport(stats);
+        }
+        System.out.printf("[INFO] 运行总耗时: %.1f 秒%n", (System.nanoTime() - startTime) / 1e9);
     }
 
     // ==================== 核心方法 ====================
@@ -75,41 +123,52 @@ public class DataCrawler {
     }
 
     // 抓取豆瓣 Top250 数据（核心逻辑）
-    private static List<Movie> crawlTop250() {
-        List<Movie> movies = new ArrayList<>();
+    private static MovieColumns crawlTop250(BatchUpsertWriter<Movie> dbWriter) {
+        MovieColumns.Builder movies = MovieColumns.builder();
         try {
             for (int page = 0; page < 250; page += 25) {
                 int currentPage = (page / 25) + 1;
                 System.out.printf("[PROGRESS] 正在抓取第 %d 页（start=%d）%n", currentPage, page);
 
+                scheduler.acquire(BASE_URL + page); // 反爬延迟（按主机调度）
                 String html = fetchPageWithRetry(BASE_URL + page);
                 if (html == null) continue;
 
-                parseHtmlToMovies(html, movies);
-                Thread.sleep(1000 + random.nextInt(2000)); // 反爬延迟
+                List<Movie> pageMovies = new ArrayList<>();
+                parseHtmlToMovies(html, pageMovies);
+                for (Movie movie : pageMovies) {
+                    if (movie.subjectId != null) {
+                        dbWriter.submit(movie);
+                    } else {
+                        // 没有条目ID无法按主键合并，只参与本次统计
+                        missingIdCount++;
+                        System.err.println("[WARN] 未解析到条目ID，不写入数据库: " + movie.title);
+                    }
+                    movies.add(movie.title, movie.rating, movie.votes, null, null, null, null);
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        return movies;
+        System.out.println("[INFO] HTTP连接池状态: " + HttpClientPool.stats());
+        System.out.println("[INFO] HTTP缓存: " + HttpCache.shared().stats());
+        return movies.build();
     }
 
     // 解析 HTML 并填充 movies 列表
     private static void parseHtmlToMovies(String html, List<Movie> movies) {
         Document doc = Jsoup.parse(html);
-        Elements items = doc.select("div.item");
+        Elements items = doc.select(LIST_ITEM);
         for (Element item : items) {
             try {
-                String title = Optional.ofNullable(item.selectFirst("span.title"))
-                        .map(Element::text).orElse("未知标题");
-
-                double rating = Optional.ofNullable(item.selectFirst("span.rating_num"))
-                        .map(e -> Double.parseDouble(e.text())).orElse(0.0);
-
-                int votes = Optional.ofNullable(item.selectFirst("span[property=v\\:votes]"))
-                        .map(e -> Integer.parseInt(e.text().replaceAll("\\D+", ""))).orElse(0);
-
-                movies.add(new Movie(title, rating, votes));
+                ExtractionRules.Result fields = LIST_ITEM_RULES.apply(item);
+                Matcher idMatcher = SUBJECT_ID_PATTERN.matcher(fields.get("href", ""));
+                String subjectId = idMatcher.find() ? idMatcher.group(1) : null;
+                String title = fields.get("title", "未知标题");
+                double rating = fields.getDouble("rating", 0.0);
+                int votes = fields.getInt("votes", 0);
+
+                movies.add(new Movie(subjectId, title, rating, votes));
             } catch (Exception e) {
                 System.err.println("[ERROR] 解析条目失败: " + e.getMessage());
             }
@@ -131,17 +190,12 @@ public class DataCrawler {
     }
 
     private static String fetchPage(String url) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpGet request = new HttpGet(url);
         request.setHeader("User-Agent", userAgents.get(random.nextInt(userAgents.size())));
         request.setHeader("Referer", "https://www.douban.com/");
 
-        try (CloseableHttpResponse response = client.execute(request)) {
-            if (response.getStatusLine().getStatusCode() != 200) {
-                throw new IOException("HTTP状态码异常: " + response.getStatusLine().getStatusCode());
-            }
-            return EntityUtils.toString(response.getEntity(), "UTF-8");
-        }
+        // 使用共享连接池发起条件请求，页面未变化（304）时直接使用本地缓存
+        return HttpCache.shared().getString(HttpClientPool.getClient(), request, "UTF-8");
     }
 
     private static void handleRetryError(String url, int retry, IOException e) {
@@ -158,53 +212,58 @@ public class DataCrawler {
     }
 
     // ==================== 数据存储模块 ====================
-    private static void saveToDatabase(List<Movie> movies) {
-        System.out.println("[INFO] 开始存储数据到数据库...");
-        long startTime = System.currentTimeMillis();
+    // 旧版重复插入的无ID记录：同一标题已有带ID的记录或更早的无ID记录时才删除，
+    // 抓取失败或中断时旧数据仍保留，不会在写入新数据之前被清空
+    private static final String LEGACY_CLEANUP_SQL = "DELETE FROM movies m WHERE m.subject_id IS NULL AND EXISTS (" +
+            "SELECT 1 FROM movies o WHERE o.title = m.title " +
+            "AND (o.subject_id IS NOT NULL OR (o.subject_id IS NULL AND o._ROWID_ < m._ROWID_)))";
+
+    // 写库线程：建表并把旧版无主键的表迁移为按 subject_id 唯一
+    private static BatchUpsertWriter<Movie> newMovieWriter() {
+        List<String> initSql = Arrays.asList(
+                "CREATE TABLE IF NOT EXISTS movies (subject_id VARCHAR(20), title VARCHAR(255), rating DOUBLE, votes INT)",
+                "ALTER TABLE movies ADD COLUMN IF NOT EXISTS subject_id VARCHAR(20) FIRST",
+                LEGACY_CLEANUP_SQL,
+                "CREATE UNIQUE INDEX IF NOT EXISTS idx_movies_subject_id ON movies(subject_id)");
+        String sql = "MERGE INTO movies (subject_id, title, rating, votes) KEY (subject_id) VALUES (?, ?, ?, ?)";
+        return new BatchUpsertWriter<>("movies-writer", JDBC_URL, initSql, sql, (pstmt, movie) -> {
+            pstmt.setString(1, movie.subjectId);
+            pstmt.setString(2, movie.title);
+            pstmt.setDouble(3, movie.rating);
+            pstmt.setInt(4, movie.votes);
+        }, DB_BATCH_SIZE, DB_BATCH_DELAY_MS);
+    }
 
+    // 抓取结束后再执行一次，清理本次写入的带ID记录所取代的旧版记录
+    private static void removeLegacyRows() {
         try (Connection conn = DriverManager.getConnection(JDBC_URL);
              Statement stmt = conn.createStatement()) {
-
-            conn.setAutoCommit(false);
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS movies (title VARCHAR(255), rating DOUBLE, votes INT)");
-
-            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO movies VALUES (?, ?, ?)")) {
-                for (Movie movie : movies) {
-                    pstmt.setString(1, movie.title);
-                    pstmt.setDouble(2, movie.rating);
-                    pstmt.setInt(3, movie.votes);
-                    pstmt.addBatch();
-                }
-                pstmt.executeBatch();
-                conn.commit();
-                System.out.printf("[SUCCESS] 数据存储完成，耗时 %dms，插入 %d 条数据%n",
-                        (System.currentTimeMillis() - startTime), movies.size());
+            int removed = stmt.executeUpdate(LEGACY_CLEANUP_SQL);
+            if (removed > 0) {
+                System.out.println("[INFO] 已清理被取代的旧版记录: " + removed + " 条");
             }
         } catch (SQLException e) {
-            System.err.println("[ERROR] 数据库操作失败: " + e.getMessage());
+            System.err.println("[WARN] 旧版记录清理失败: " + e.getMessage());
         }
     }
 
     // ==================== 可视化模块 ====================
-    private static void showOptimizedChart(List<Movie> movies) {
+    private static JFreeChart buildRatingChart(MovieAggregator.Result stats) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
-        // 按0.5分间隔聚合数据
-        movies.stream()
-                .collect(Collectors.groupingBy(
-                        m -> String.format("%.1f-%.1f", Math.floor(m.rating * 2)/2, Math.floor(m.rating * 2)/2 + 0.5),
-                        TreeMap::new,
-                        Collectors.counting()
-                ))
-                .forEach((k, v) -> dataset.addValue(v, "数量", k));
+        // 按0.5分间隔的评分分布
+        stats.forEachRatingBucket((low, count) ->
+                dataset.addValue(count, "数量", String.format("%.1f-%.1f", low, low + 0.5)));
 
-        JFreeChart chart = ChartFactory.createBarChart(
+        return ChartFactory.createBarChart(
                 "豆瓣Top250评分分布（0.5分间隔）", // 标题
                 "评分区间", 
                 "电影数量", 
                 dataset
         );
+    }
 
+    private static void showOptimizedChart(JFreeChart chart) {
         ChartFrame frame = new ChartFrame("统计结果", chart);
         frame.pack();
         frame.setVisible(true);
@@ -212,25 +271,19 @@ public class DataCrawler {
     }
 
     // ==================== 文本报告模块 ====================
-    private static void generateTextReport(List<Movie> movies) {
+    private static void generateTextReport(MovieAggregator.Result stats) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(REPORT_PATH))) {
             writer.write("=============== 豆瓣电影Top250分析报告 ===============\n");
-            writer.write(String.format("数据总量: %d 部\n\n", movies.size()));
+            writer.write(String.format("数据总量: %d 部\n\n", stats.total()));
 
             // 评分分布统计
             writer.write("【评分区间分布】\n");
-            Map<String, Long> ratingDistribution = movies.stream()
-                    .collect(Collectors.groupingBy(
-                            m -> String.format("%.1f-%.1f", Math.floor(m.rating * 2)/2, Math.floor(m.rating * 2)/2 + 0.5),
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-            ratingDistribution.forEach((k, v) -> writeFormattedLine(writer, k, v));
+            stats.forEachRatingBucket((low, count) ->
+                    writeFormattedLine(writer, String.format("%.1f-%.1f", low, low + 0.5), count));
 
             // 数据质量分析
             writer.write("\n【数据质量】\n");
-            long missingTitle = movies.stream().filter(m -> m.title.equals("未知标题")).count();
-            writeFormattedLine(writer, "标题缺失记录", missingTitle);
+            writeFormattedLine(writer, "标题缺失记录", stats.unknownTitles());
 
             System.out.println("[SUCCESS] 文本报告已生成: " + REPORT_PATH);
         } catch (IOException e) {
@@ -1,12 +1,17 @@
-import org.apache.http.client.methods.CloseableHttpResponse;
+import cn.myh.java.BatchUpsertWriter;
+import cn.myh.java.ChartExporter;
+import cn.myh.java.ExtractionRules;
+import cn.myh.java.HostScheduler;
+import cn.myh.java.HttpCache;
+import cn.myh.java.HttpClientPool;
+import cn.myh.java.MovieAggregator;
+import cn.myh.java.MovieColumns;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartFrame;
 import org.jfree.chart.JFreeChart;
@@ -17,10 +22,11 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import javax.swing.JFrame;
@@ -38,9 +44,38 @@ public class EnhancedDataCrawler {
     private static final int MAX_RETRY = 3;
     private static List<String> userAgents = new ArrayList<>();
     private static Random random = new Random();
+    private static final HostScheduler scheduler = new HostScheduler(1000, 2000); // 同一主机请求间隔 1~3 秒
+    private static final int DB_BATCH_SIZE = 25;         // 每批写库条数
+    private static final long DB_BATCH_DELAY_MS = 5000;  // 一批最长等待时间
+    private static final Pattern SUBJECT_ID_PATTERN = Pattern.compile("/subject/(\\d+)");
+    private static final Pattern YEAR_PATTERN = Pattern.compile("(\\d{4})");
+    // 列表页电影链接与详情页抽取规则，选择器只解析一次
+    private static final Evaluator MOVIE_LINK = ExtractionRules.selector(".item .info .hd a");
+    private static final ExtractionRules DETAIL_RULES = ExtractionRules.builder()
+            .text("title", "h1 span[property='v:itemreviewed']")
+            .text("year", "h1 span.year")
+            .text("rating", ".rating_self_r strong[property='v:average']")
+            .text("votes", ".rating_people span[property='v:votes']")
+            .text("summary", "[property='v:summary']")
+            .joinText("awards", ".mod:has(h2:contains(获奖情况))", "\n")
+            .labelBlock("#info")
+            .label("directors", "导演")
+            .label("screenwriters", "编剧")
+            .label("actors", "主演")
+            .label("genres", "类型")
+            .label("countries", "制片国家/地区")
+            .label("languages", "语言")
+            .label("releaseDate", "上映日期")
+            .label("runtime", "片长")
+            .label("originalTitle", "原名")
+            .label("imdbId", "IMDb")
+            .build();
+    private static final String MOVIE_COLUMNS = "subject_id, title, original_title, rating, votes, movie_year, " +
+            "directors, screenwriters, actors, genres, countries, languages, runtime, imdb_id, summary, awards";
 
     // ==================== 增强版电影实体类 ====================
     private static class EnhancedMovie {
+        String subjectId;       // 豆瓣条目ID
         String title;           // 电影标题
         String originalTitle;   // 原始标题
         double rating;         // 评分
@@ -68,12 +103,36 @@ public class EnhancedDataCrawler {
 
     // ==================== Main 入口 ====================
     public static void main(String[] args) {
+        // --resume 或 -Dcrawler.resume=true：从上次中断处继续，跳过已完成的条目
+        boolean resume = Arrays.asList(args).contains("--resume") || Boolean.getBoolean("crawler.resume");
+        // --headless 或无显示环境：图表保存为 PNG，不打开窗口
+        boolean headless = ChartExporter.useHeadless(args);
+        long startTime = System.nanoTime();
         initUserAgents();
         createOutputDir();
-        List<EnhancedMovie> movies = crawlTop250();
-        saveToDatabase(movies);
-        showOptimizedChart(movies);
-        generateTextReport(movies);
+        // 边抓取边写库，按条目ID合并，重复运行不会产生重复记录
+        BatchUpsertWriter<EnhancedMovie> dbWriter = newMovieWriter();
+        MovieColumns movies;
+        try {
+            movies = crawlTop250(resume, dbWriter);
+        } finally {
+            dbWriter.close(); // 等待剩余批次写完
+        }
+        removeLegacyRows(); // 本次写入的带ID记录已取代对应的旧版记录
+        System.out.println("[SUCCESS] 数据存储完成，" + dbWriter.stats());
+        // 一次遍历得到报告和图表所需的全部分布
+        MovieAggregator.Result stats = MovieAggregator.aggregate(movies);
+        Map<String, JFreeChart> charts = buildCharts(stats);
+        if (headless) {
+            // 图表在后台渲染，同时生成文本报告
+            CompletableFuture<List<Path>> rendering = ChartExporter.renderAsync(charts, Paths.get(OUTPUT_DIR));
+            generateTextReport(stats);
+            rendering.join().forEach(path -> System.out.println("[SUCCESS] 图表已保存: " + path));
+        } else {
+            showOptimizedChart(charts);
+            generateTextReport(stats);
+        }
+        System.out.printf("[INFO] 运行总耗时: %.1f 秒%n", (System.nanoTime() - startTime) / 1e9);
     }
 
     // ==================== 核心方法 ====================
@@ -91,44 +150,70 @@ public class EnhancedDataCrawler {
         }
     }
 
-    private static List<EnhancedMovie> crawlTop250() {
-        List<EnhancedMovie> movies = new ArrayList<>();
+    // 返回供统计使用的列式数据集；完整记录（含简介、获奖）只交给写库线程
+    private static MovieColumns crawlTop250(boolean resume, BatchUpsertWriter<EnhancedMovie> dbWriter) {
+        MovieColumns.Builder movies = MovieColumns.builder();
+        Set<String> completedIds = new HashSet<>();
+        Map<Integer, List<String>> knownPages = new HashMap<>();
+        initCheckpoint(resume, movies, completedIds, knownPages);
+        // 进程被中断（如 Ctrl+C）时写出尚未保存的数据及其断点
+        Thread checkpointHook = new Thread(dbWriter::close, "checkpoint-flush");
+        Runtime.getRuntime().addShutdownHook(checkpointHook);
         try {
             for (int page = 0; page < 250; page += 25) {
                 int currentPage = (page / 25) + 1;
                 System.out.printf("[PROGRESS] 正在抓取第 %d 页（start=%d）%n", currentPage, page);
 
-                String html = fetchPageWithRetry(BASE_URL + page);
-                if (html == null) continue;
+                List<String> movieIds = knownPages.get(page);
+                if (movieIds == null) {
+                    scheduler.acquire(BASE_URL + page); // 反爬延迟（按主机调度）
+                    String html = fetchPageWithRetry(BASE_URL + page);
+                    if (html == null) continue;
+                    movieIds = parseMovieIds(html);
+                    checkpointPage(page, movieIds);
+                } else {
+                    System.out.printf("[RESUME] 使用断点中的第 %d 页条目列表%n", currentPage);
+                }
 
-                List<String> movieIds = parseMovieIds(html);
                 for (String movieId : movieIds) {
+                    if (completedIds.contains(movieId)) continue; // 断点中已完成
+
                     String detailUrl = String.format(MOVIE_DETAIL_URL, movieId);
+                    scheduler.acquire(detailUrl);
                     String detailHtml = fetchPageWithRetry(detailUrl);
                     if (detailHtml != null) {
                         EnhancedMovie movie = parseMovieDetail(detailHtml);
                         if (movie != null) {
-                            movies.add(movie);
+                            movie.subjectId = movieId;
+                            dbWriter.submit(movie); // 与断点在同一事务中写入
+                            addToColumns(movies, movie); // 大文本字段写库后即可释放
                             System.out.printf("[SUCCESS] 已抓取电影: %s%n", movie.title);
                         }
                     }
-                    Thread.sleep(1000 + random.nextInt(2000)); // 反爬延迟
                 }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(checkpointHook);
+            } catch (IllegalStateException e) {
+                // 已在关闭过程中
+            }
         }
-        return movies;
+        System.out.println("[INFO] HTTP连接池状态: " + HttpClientPool.stats());
+        System.out.println("[INFO] HTTP缓存: " + HttpCache.shared().stats());
+        return movies.build();
     }
 
     private static List<String> parseMovieIds(String html) {
         List<String> movieIds = new ArrayList<>();
         Document doc = Jsoup.parse(html);
-        Elements items = doc.select(".item .info .hd a");
+        Elements items = doc.select(MOVIE_LINK);
         for (Element item : items) {
             String href = item.attr("href");
-            String movieId = href.replaceAll(".*/subject/(\\d+)/.*", "$1");
-            movieIds.add(movieId);
+            Matcher idMatcher = SUBJECT_ID_PATTERN.matcher(href);
+            movieIds.add(idMatcher.find() ? idMatcher.group(1) : href);
         }
         return movieIds;
     }
@@ -136,48 +221,32 @@ public class EnhancedDataCrawler {
     private static EnhancedMovie parseMovieDetail(String html) {
         try {
             Document doc = Jsoup.parse(html);
+            // 一次执行全部规则：选择器已预先解析，#info 只遍历一遍
+            ExtractionRules.Result fields = DETAIL_RULES.apply(doc);
             EnhancedMovie movie = new EnhancedMovie();
 
-            // 解析基本信息
-            movie.title = Optional.ofNullable(doc.selectFirst("h1 span[property='v:itemreviewed']"))
-                    .map(Element::text).orElse("未知标题");
-            movie.rating = Optional.ofNullable(doc.selectFirst(".rating_self_r strong[property='v:average']"))
-                    .map(e -> Double.parseDouble(e.text())).orElse(0.0);
-            movie.votes = Optional.ofNullable(doc.selectFirst(".rating_people span[property='v:votes']"))
-                    .map(e -> Integer.parseInt(e.text())).orElse(0);
-
-            // 解析详细信息
-            Element info = doc.selectFirst("#info");
-            if (info != null) {
-                String infoText = info.text();
-                movie.originalTitle = extractInfo(infoText, "原名:", "\n");
-                movie.directors = extractInfo(infoText, "导演:", "编剧:");
-                movie.screenwriters = extractInfo(infoText, "编剧:", "主演:");
-                movie.actors = extractInfo(infoText, "主演:", "类型:");
-                movie.genres = extractInfo(infoText, "类型:", "制片国家/地区:");
-                movie.countries = extractInfo(infoText, "制片国家/地区:", "语言:");
-                movie.languages = extractInfo(infoText, "语言:", "上映日期:");
-                movie.runtime = extractInfo(infoText, "片长:", "又名:");
-                movie.imdbId = extractInfo(infoText, "IMDb:", "\n");
-                // 提取年份信息
-                Pattern yearPattern = Pattern.compile("(\\d{4})");
-                Matcher yearMatcher = yearPattern.matcher(infoText);
-                movie.year = yearMatcher.find() ? yearMatcher.group(1) : null;
-            }
-
-            // 解析剧情简介
-            movie.summary = Optional.ofNullable(doc.selectFirst("[property='v:summary']"))
-                    .map(Element::text)
-                    .map(s -> s.trim())
-                    .orElse("");
-
-            // 解析获奖情况
-            Elements awards = doc.select(".mod");
-            if (!awards.isEmpty()) {
-                movie.awards = awards.stream()
-                        .map(Element::text)
-                        .collect(Collectors.joining("\n"));
-            }
+            // 基本信息
+            movie.title = fields.get("title", "未知标题");
+            movie.rating = fields.getDouble("rating", 0.0);
+            movie.votes = fields.getInt("votes", 0);
+
+            // 详细信息
+            movie.originalTitle = fields.get("originalTitle", "");
+            movie.directors = fields.get("directors", "");
+            movie.screenwriters = fields.get("screenwriters", "");
+            movie.actors = fields.get("actors", "");
+            movie.genres = fields.get("genres", "");
+            movie.countries = fields.get("countries", "");
+            movie.languages = fields.get("languages", "");
+            movie.runtime = fields.get("runtime", "");
+            movie.imdbId = fields.get("imdbId", "");
+            // 年份优先取标题旁的 "(1994)"，没有时取上映日期
+            Matcher yearMatcher = YEAR_PATTERN.matcher(fields.get("year", "") + " " + fields.get("releaseDate", ""));
+            movie.year = yearMatcher.find() ? yearMatcher.group(1) : null;
+
+            // 剧情简介与获奖情况
+            movie.summary = fields.get("summary", "");
+            movie.awards = fields.get("awards");
 
             return movie;
         } catch (Exception e) {
@@ -186,13 +255,77 @@ public class EnhancedDataCrawler {
         }
     }
 
-    private static String extractInfo(String text, String startMark, String endMark) {
-        try {
-            int start = text.indexOf(startMark) + startMark.length();
-            int end = text.indexOf(endMark, start);
-            return end > start ? text.substring(start, end).trim() : "";
-        } catch (Exception e) {
-            return "";
+    // 多值字段在此拆分一次并字典编码，后续统计不再处理字符串
+    private static void addToColumns(MovieColumns.Builder columns, EnhancedMovie movie) {
+        columns.add(movie.title, movie.rating, movie.votes, movie.year,
+                movie.genres, movie.countries, movie.languages);
+    }
+
+    // ==================== 断点续爬模块 ====================
+    // 初始化断点表；续爬时载入本次运行已完成的电影与列表页，否则清空上次的断点
+    private static void initCheckpoint(boolean resume, MovieColumns.Builder movies,
+                                       Set<String> completedIds, Map<Integer, List<String>> knownPages) {
+        try (Connection conn = DriverManager.getConnection(JDBC_URL);
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(CHECKPOINT_TABLE_SQL);
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS crawl_checkpoint_pages (" +
+                    "page_start INTEGER PRIMARY KEY, " +
+                    "movie_ids VARCHAR(1000))");
+
+            if (!resume) {
+                stmt.executeUpdate("DELETE FROM crawl_checkpoint");
+                stmt.executeUpdate("DELETE FROM crawl_checkpoint_pages");
+                return;
+            }
+
+            // 断点只记录本次运行已写入的条目ID，数据取自电影表；简介、获奖等大文本字段统计用不到，不再载入
+            try (ResultSet rs = stmt.executeQuery("SELECT m.subject_id, m.title, m.original_title, m.rating, m.votes, " +
+                    "m.movie_year, m.directors, m.screenwriters, m.actors, m.genres, m.countries, m.languages, " +
+                    "m.runtime, m.imdb_id FROM crawl_checkpoint c JOIN enhanced_movies m ON m.subject_id = c.subject_id " +
+                    "ORDER BY c.crawled_at")) {
+                while (rs.next()) {
+                    EnhancedMovie movie = new EnhancedMovie();
+                    movie.subjectId = rs.getString("subject_id");
+                    movie.title = rs.getString("title");
+                    movie.originalTitle = rs.getString("original_title");
+                    movie.rating = rs.getDouble("rating");
+                    movie.votes = rs.getInt("votes");
+                    movie.year = rs.getString("movie_year");
+                    movie.directors = rs.getString("directors");
+                    movie.screenwriters = rs.getString("screenwriters");
+                    movie.actors = rs.getString("actors");
+                    movie.genres = rs.getString("genres");
+                    movie.countries = rs.getString("countries");
+                    movie.languages = rs.getString("languages");
+                    movie.runtime = rs.getString("runtime");
+                    movie.imdbId = rs.getString("imdb_id");
+                    addToColumns(movies, movie);
+                    completedIds.add(movie.subjectId);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT page_start, movie_ids FROM crawl_checkpoint_pages")) {
+                while (rs.next()) {
+                    String ids = rs.getString("movie_ids");
+                    knownPages.put(rs.getInt("page_start"),
+                            ids.isEmpty() ? new ArrayList<>() : Arrays.asList(ids.split(",")));
+                }
+            }
+            System.out.printf("[RESUME] 已从断点恢复 %d 部电影、%d 个列表页%n", movies.size(), knownPages.size());
+        } catch (SQLException e) {
+            System.err.println("[ERROR] 断点初始化失败，将完整抓取: " + e.getMessage());
+        }
+    }
+
+    // 记录列表页解析出的条目ID，续爬时无需重新请求列表页
+    private static void checkpointPage(int pageStart, List<String> movieIds) {
+        try (Connection conn = DriverManager.getConnection(JDBC_URL);
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "MERGE INTO crawl_checkpoint_pages (page_start, movie_ids) KEY (page_start) VALUES (?, ?)")) {
+            pstmt.setInt(1, pageStart);
+            pstmt.setString(2, String.join(",", movieIds));
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("[WARN] 列表页断点写入失败: " + e.getMessage());
         }
     }
 
@@ -211,17 +344,12 @@ public class EnhancedDataCrawler {
     }
 
     private static String fetchPage(String url) throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
         HttpGet request = new HttpGet(url);
         request.setHeader("User-Agent", userAgents.get(random.nextInt(userAgents.size())));
         request.setHeader("Referer", "https://www.douban.com/");
 
-        try (CloseableHttpResponse response = client.execute(request)) {
-            if (response.getStatusLine().getStatusCode() != 200) {
-                throw new IOException("HTTP状态码异常: " + response.getStatusLine().getStatusCode());
-            }
-            return EntityUtils.toString(response.getEntity(), "UTF-8");
-        }
+        // 使用共享连接池发起条件请求，页面未变化（304）时直接使用本地缓存
+        return HttpCache.shared().getString(HttpClientPool.getClient(), request, "UTF-8");
     }
 
     private static void handleRetryError(String url, int retry, IOException e) {
@@ -238,138 +366,122 @@ public class EnhancedDataCrawler {
     }
 
     // ==================== 数据存储模块 ====================
-    private static void saveToDatabase(List<EnhancedMovie> movies) {
-        System.out.println("[INFO] 开始存储数据到数据库...");
-        long startTime = System.currentTimeMillis();
+    // 旧版重复插入的无ID记录：同一标题已有带ID的记录或更早的无ID记录时才删除，
+    // 抓取失败或中断时旧数据仍保留，不会在写入新数据之前被清空
+    private static final String LEGACY_CLEANUP_SQL = "DELETE FROM enhanced_movies m WHERE m.subject_id IS NULL AND EXISTS (" +
+            "SELECT 1 FROM enhanced_movies o WHERE o.title = m.title " +
+            "AND (o.subject_id IS NOT NULL OR (o.subject_id IS NULL AND o._ROWID_ < m._ROWID_)))";
+
+    // 本次运行已写入电影表的条目ID，续爬时据此跳过；与电影数据在同一事务中写入，不会有断点记录而数据丢失
+    private static final String CHECKPOINT_TABLE_SQL = "CREATE TABLE IF NOT EXISTS crawl_checkpoint (" +
+            "subject_id VARCHAR(20) PRIMARY KEY, " +
+            "crawled_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+
+    // 写库线程：建表并把旧版无主键的表迁移为按 subject_id 唯一；每批电影与其断点一并提交
+    private static BatchUpsertWriter<EnhancedMovie> newMovieWriter() {
+        List<String> initSql = Arrays.asList(
+                "CREATE TABLE IF NOT EXISTS enhanced_movies (" +
+                        "subject_id VARCHAR(20), " +
+                        "title VARCHAR(255), " +
+                        "original_title VARCHAR(255), " +
+                        "rating DOUBLE, " +
+                        "votes INTEGER, " +
+                        "movie_year VARCHAR(4), " +
+                        "directors VARCHAR(500), " +
+                        "screenwriters VARCHAR(500), " +
+                        "actors VARCHAR(1000), " +
+                        "genres VARCHAR(255), " +
+                        "countries VARCHAR(255), " +
+                        "languages VARCHAR(255), " +
+                        "runtime VARCHAR(50), " +
+                        "imdb_id VARCHAR(50), " +
+                        "summary CLOB, " +
+                        "awards CLOB)",
+                "ALTER TABLE enhanced_movies ADD COLUMN IF NOT EXISTS subject_id VARCHAR(20) FIRST",
+                LEGACY_CLEANUP_SQL,
+                "CREATE UNIQUE INDEX IF NOT EXISTS idx_enhanced_movies_subject_id ON enhanced_movies(subject_id)",
+                CHECKPOINT_TABLE_SQL);
+        Map<String, BatchUpsertWriter.Binder<EnhancedMovie>> upserts = new LinkedHashMap<>();
+        upserts.put("MERGE INTO enhanced_movies (" + MOVIE_COLUMNS + ") KEY (subject_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", EnhancedDataCrawler::bindMovie);
+        upserts.put("MERGE INTO crawl_checkpoint (subject_id) KEY (subject_id) VALUES (?)",
+                (pstmt, movie) -> pstmt.setString(1, movie.subjectId));
+        return new BatchUpsertWriter<>("movies-writer", JDBC_URL, initSql, upserts, DB_BATCH_SIZE, DB_BATCH_DELAY_MS);
+    }
 
+    // 抓取结束后再执行一次，清理本次写入的带ID记录所取代的旧版记录
+    private static void removeLegacyRows() {
         try (Connection conn = DriverManager.getConnection(JDBC_URL);
              Statement stmt = conn.createStatement()) {
-
-            conn.setAutoCommit(false);
-            
-            // 创建增强版电影表
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS enhanced_movies (" +
-                    "title VARCHAR(255), " +
-                    "original_title VARCHAR(255), " +
-                    "rating DOUBLE, " +
-                    "votes INTEGER, " +
-                    "movie_year VARCHAR(4), " +
-                    "directors VARCHAR(500), " +
-                    "screenwriters VARCHAR(500), " +
-                    "actors VARCHAR(1000), " +
-                    "genres VARCHAR(255), " +
-                    "countries VARCHAR(255), " +
-                    "languages VARCHAR(255), " +
-                    "runtime VARCHAR(50), " +
-                    "imdb_id VARCHAR(50), " +
-                    "summary CLOB, " +
-                    "awards CLOB)");
-
-            // 准备插入语句
-            String sql = "INSERT INTO enhanced_movies VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";            
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                for (EnhancedMovie movie : movies) {
-                    pstmt.setString(1, movie.title);
-                    pstmt.setString(2, movie.originalTitle);
-                    pstmt.setDouble(3, movie.rating);
-                    pstmt.setInt(4, movie.votes);
-                    pstmt.setString(5, movie.year != null ? movie.year.replaceAll("[^0-9]", "") : null);
-                    pstmt.setString(6, movie.directors);
-                    pstmt.setString(7, movie.screenwriters);
-                    pstmt.setString(8, movie.actors);
-                    pstmt.setString(9, movie.genres);
-                    pstmt.setString(10, movie.countries);
-                    pstmt.setString(11, movie.languages);
-                    pstmt.setString(12, movie.runtime);
-                    pstmt.setString(13, movie.imdbId);
-                    pstmt.setString(14, movie.summary);
-                    pstmt.setString(15, movie.awards);
-                    pstmt.addBatch();
-                }
-                pstmt.executeBatch();
-                conn.commit();
-                System.out.printf("[SUCCESS] 数据存储完成，耗时 %dms，插入 %d 条数据%n",
-                        (System.currentTimeMillis() - startTime), movies.size());
+            int removed = stmt.executeUpdate(LEGACY_CLEANUP_SQL);
+            if (removed > 0) {
+                System.out.println("[INFO] 已清理被取代的旧版记录: " + removed + " 条");
             }
         } catch (SQLException e) {
-            System.err.println("[ERROR] 数据库操作失败: " + e.getMessage());
+            System.err.println("[WARN] 旧版记录清理失败: " + e.getMessage());
         }
     }
 
+    // 按 MOVIE_COLUMNS 的顺序绑定参数
+    private static void bindMovie(PreparedStatement pstmt, EnhancedMovie movie) throws SQLException {
+        pstmt.setString(1, movie.subjectId);
+        pstmt.setString(2, movie.title);
+        pstmt.setString(3, movie.originalTitle);
+        pstmt.setDouble(4, movie.rating);
+        pstmt.setInt(5, movie.votes);
+        pstmt.setString(6, movie.year != null ? movie.year.replaceAll("[^0-9]", "") : null);
+        pstmt.setString(7, movie.directors);
+        pstmt.setString(8, movie.screenwriters);
+        pstmt.setString(9, movie.actors);
+        pstmt.setString(10, movie.genres);
+        pstmt.setString(11, movie.countries);
+        pstmt.setString(12, movie.languages);
+        pstmt.setString(13, movie.runtime);
+        pstmt.setString(14, movie.imdbId);
+        pstmt.setString(15, movie.summary);
+        pstmt.setString(16, movie.awards);
+    }
+
     // ==================== 可视化模块 ====================
-    private static void showOptimizedChart(List<EnhancedMovie> movies) {
-        // 创建多个图表展示不同维度的数据
-        JFrame frame = new JFrame("豆瓣Top250电影统计分析");
-        frame.setLayout(new GridLayout(2, 2));
+    // 按维度生成图表，键为导出时的文件名
+    private static Map<String, JFreeChart> buildCharts(MovieAggregator.Result stats) {
+        Map<String, JFreeChart> charts = new LinkedHashMap<>();
 
         // 1. 年代分布
         DefaultCategoryDataset decadeDataset = new DefaultCategoryDataset();
-        movies.stream()
-                .filter(m -> m.year != null && !m.year.isEmpty())
-                .collect(Collectors.groupingBy(
-                        m -> m.year.substring(0, 3) + "0s",
-                        TreeMap::new,
-                        Collectors.counting()
-                ))
-                .forEach((k, v) -> decadeDataset.addValue(v, "数量", k));
-
-        JFreeChart decadeChart = ChartFactory.createBarChart(
+        stats.forEachDecade((decade, count) -> decadeDataset.addValue(count, "数量", decade));
+        charts.put("decade_distribution", ChartFactory.createBarChart(
                 "年代分布", "年代", "电影数量", decadeDataset
-        );
-        frame.add(new ChartPanel(decadeChart));
+        ));
 
         // 2. 评分分布
         DefaultCategoryDataset ratingDataset = new DefaultCategoryDataset();
-        movies.stream()
-                .collect(Collectors.groupingBy(
-                        m -> String.format("%.1f", Math.floor(m.rating * 2) / 2),
-                        TreeMap::new,
-                        Collectors.counting()
-                ))
-                .forEach((k, v) -> ratingDataset.addValue(v, "数量", k));
-
-        JFreeChart ratingChart = ChartFactory.createBarChart(
+        stats.forEachRatingBucket((low, count) -> ratingDataset.addValue(count, "数量", String.format("%.1f", low)));
+        charts.put("rating_distribution", ChartFactory.createBarChart(
                 "评分分布", "评分", "电影数量", ratingDataset
-        );
-        frame.add(new ChartPanel(ratingChart));
+        ));
 
         // 3. 类型分布
         DefaultPieDataset genreDataset = new DefaultPieDataset();
-        movies.stream()
-                .filter(m -> m.genres != null && !m.genres.isEmpty())
-                .flatMap(m -> Arrays.stream(m.genres.split(" ")))
-                .collect(Collectors.groupingBy(
-                        genre -> genre,
-                        Collectors.counting()
-                ))
-                .entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(10)
-                .forEach(e -> genreDataset.setValue(e.getKey(), e.getValue()));
-
-        JFreeChart genreChart = ChartFactory.createPieChart(
+        stats.genres().top(10).forEach(genreDataset::setValue);
+        charts.put("genre_top10", ChartFactory.createPieChart(
                 "Top10类型分布", genreDataset, true, true, false
-        );
-        frame.add(new ChartPanel(genreChart));
+        ));
 
         // 4. 国家/地区分布
         DefaultPieDataset countryDataset = new DefaultPieDataset();
-        movies.stream()
-                .filter(m -> m.countries != null && !m.countries.isEmpty())
-                .flatMap(m -> Arrays.stream(m.countries.split(" ")))
-                .collect(Collectors.groupingBy(
-                        country -> country,
-                        Collectors.counting()
-                ))
-                .entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(10)
-                .forEach(e -> countryDataset.setValue(e.getKey(), e.getValue()));
-
-        JFreeChart countryChart = ChartFactory.createPieChart(
+        stats.countries().top(10).forEach(countryDataset::setValue);
+        charts.put("country_top10", ChartFactory.createPieChart(
                 "Top10国家/地区分布", countryDataset, true, true, false
-        );
-        frame.add(new ChartPanel(countryChart));
+        ));
+        return charts;
+    }
+
+    private static void showOptimizedChart(Map<String, JFreeChart> charts) {
+        // 多个图表展示不同维度的数据
+        JFrame frame = new JFrame("豆瓣Top250电影统计分析");
+        frame.setLayout(new GridLayout(2, 2));
+        charts.values().forEach(chart -> frame.add(new ChartPanel(chart)));
 
         // 设置窗口属性
         frame.setSize(1200, 800);
@@ -379,55 +491,27 @@ public class EnhancedDataCrawler {
     }
 
     // ==================== 文本报告模块 ====================
-    private static void generateTextReport(List<EnhancedMovie> movies) {
+    private static void generateTextReport(MovieAggregator.Result stats) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(REPORT_PATH))) {
             writer.write("=============== 豆瓣电影Top250增强版分析报告 ===============\n");
-            writer.write(String.format("数据总量: %d 部\n\n", movies.size()));
+            writer.write(String.format("数据总量: %d 部\n\n", stats.total()));
 
             // 评分分布统计
             writer.write("【评分区间分布】\n");
-            Map<String, Long> ratingDistribution = movies.stream()
-                    .collect(Collectors.groupingBy(
-                            m -> String.format("%.1f-%.1f", Math.floor(m.rating * 2)/2, Math.floor(m.rating * 2)/2 + 0.5),
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-            ratingDistribution.forEach((k, v) -> writeFormattedLine(writer, k, v));
+            stats.forEachRatingBucket((low, count) ->
+                    writeFormattedLine(writer, String.format("%.1f-%.1f", low, low + 0.5), count));
 
             // 年代分布统计
             writer.write("\n【年代分布】\n");
-            Map<String, Long> decadeDistribution = movies.stream()
-                    .filter(m -> m.year != null && !m.year.isEmpty())
-                    .collect(Collectors.groupingBy(
-                            m -> m.year.substring(0, 3) + "0s",
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-            decadeDistribution.forEach((k, v) -> writeFormattedLine(writer, k, v));
+            stats.forEachDecade((decade, count) -> writeFormattedLine(writer, decade, count));
 
             // 类型分布统计
             writer.write("\n【电影类型分布】\n");
-            Map<String, Long> genreDistribution = movies.stream()
-                    .filter(m -> m.genres != null && !m.genres.isEmpty())
-                    .flatMap(m -> Arrays.stream(m.genres.split(" ")))
-                    .collect(Collectors.groupingBy(
-                            genre -> genre,
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-            genreDistribution.forEach((k, v) -> writeFormattedLine(writer, k, v));
+            stats.genres().forEachByName((genre, count) -> writeFormattedLine(writer, genre, count));
 
             // 国家/地区分布统计
             writer.write("\n【制片国家/地区分布】\n");
-            Map<String, Long> countryDistribution = movies.stream()
-                    .filter(m -> m.countries != null && !m.countries.isEmpty())
-                    .flatMap(m -> Arrays.stream(m.countries.split(" ")))
-                    .collect(Collectors.groupingBy(
-                            country -> country,
-                            TreeMap::new,
-                            Collectors.counting()
-                    ));
-            countryDistribution.forEach((k, v) -> writeFormattedLine(writer, k, v));
+            stats.countries().forEachByName((country, count) -> writeFormattedLine(writer, country, count));
 
             System.out.println("[SUCCESS] 增强版文本报告已生成: " + REPORT_PATH);
         } catch (IOException e) {
@@ -0,0 +1,194 @@
+package cn.myh.java;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步写文件（write-behind）
+ * 抓取线程只把待写内容放入有界队列，由专用写线程批量落盘：一批文件先全部写入，再统一 fsync，
+ * 磁盘延迟不再计入抓取时间。队列满时 write() 阻塞，形成背压；close() 或进程退出时写完队列中剩余内容。
+ */
+public class AsyncFileWriter implements AutoCloseable {
+    private static final Record END = new Record(null, null); // 关闭标记
+
+    // 一条待写记录
+    private static class Record {
+        final Path path;
+        final String content;
+
+        Record(Path path, String content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
+    private final BlockingQueue<Record> queue;
+    private final int batchSize;
+    private final List<Thread> writers = new ArrayList<>();
+    private final Thread shutdownHook;
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private boolean closed = false;
+
+    /**
+     * @param name          写线程名前缀
+     * @param threads       写线程数
+     * @param queueCapacity 队列容量，满时 write() 阻塞
+     * @param batchSize     每批最多写入的文件数（共用一轮 fsync）
+     */
+    public AsyncFileWriter(String name, int threads, int queueCapacity, int batchSize) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        for (int i = 0; i < threads; i++) {
+            Thread writer = new Thread(this::run, name + "-" + (i + 1));
+            writer.setDaemon(true);
+            writers.add(writer);
+            writer.start();
+        }
+        // 未显式 close() 就退出时，仍写完队列中的内容
+        shutdownHook = new Thread(this::close, name + "-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * 按 -Dwriter.threads / -Dwriter.queue / -Dwriter.batch 配置（默认 2 / 256 / 16）
+     */
+    public static AsyncFileWriter withDefaults(String name) {
+        return new AsyncFileWriter(name,
+                Integer.getInteger("writer.threads", 2),
+                Integer.getInteger("writer.queue", 256),
+                Integer.getInteger("writer.batch", 16));
+    }
+
+    /**
+     * 提交一个文件（UTF-8），队列已满时阻塞直到有空位
+     */
+    public void write(Path path, String content) throws InterruptedException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("写文件线程已关闭");
+            }
+        }
+        queue.put(new Record(path, content));
+    }
+
+    /**
+     * 写完已提交的全部内容并结束写线程，可重复调用
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        try {
+            for (int i = 0; i < writers.size(); i++) {
+                queue.put(END);
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // 已在关闭过程中
+        }
+    }
+
+    public long filesWritten() {
+        return filesWritten.get();
+    }
+
+    public String stats() {
+        return String.format("写入文件 %d 个（%.1f KB），失败 %d 个",
+                filesWritten.get(), bytesWritten.get() / 1024.0, failures.get());
+    }
+
+    private void run() {
+        List<Record> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Record first = queue.take();
+                if (first == END) return;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // 关闭标记排在所有已提交记录之后：本批写完即退出，多取到的标记留给其他写线程
+                int ends = 0;
+                while (batch.remove(END)) ends++;
+                writeBatch(batch);
+                batch.clear();
+                if (ends > 0) {
+                    for (int i = 1; i < ends; i++) {
+                        queue.put(END);
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 先写入整批文件，再统一 fsync 并关闭
+    private void writeBatch(List<Record> batch) {
+        List<FileChannel> channels = new ArrayList<>(batch.size());
+        List<Record> opened = new ArrayList<>(batch.size());
+        for (Record record : batch) {
+            FileChannel channel = null;
+            try {
+                Path dir = record.path.toAbsolutePath().getParent();
+                if (dir != null) {
+                    Files.createDirectories(dir);
+                }
+                channel = FileChannel.open(record.path, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                ByteBuffer buffer = ByteBuffer.wrap(record.content.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                bytesWritten.addAndGet(buffer.capacity());
+                channels.add(channel);
+                opened.add(record);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                fail(record, e);
+            }
+        }
+        for (int i = 0; i < channels.size(); i++) {
+            try (FileChannel channel = channels.get(i)) {
+                channel.force(true);
+                filesWritten.incrementAndGet();
+            } catch (IOException e) {
+                fail(opened.get(i), e);
+            }
+        }
+    }
+
+    private void fail(Record record, IOException e) {
+        failures.incrementAndGet();
+        System.err.println("写入文件失败: " + record.path + " | 错误: " + e.getMessage());
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已记录写入失败
+        }
+    }
+}
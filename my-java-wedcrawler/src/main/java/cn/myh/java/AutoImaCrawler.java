@@ -1,27 +1,30 @@
 package cn.myh.java;
 
-import org.apache.commons.io.FileUtils;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class AutoImaCrawler {
     // 配置常量
     private static final String BASE_URL = "https://www.nipic.com/";
     private static final String SAVE_DIR = "D:\\新建文件夹\\";
-    private static final int MAX_URL_COUNT = 50; // 最大URL爬取数量限制
+    private static final int MAX_URL_COUNT = Integer.getInteger("crawler.maxUrls", 50); // 最大URL爬取数量限制
     private static final int MAX_RETRY_COUNT = 3; // 最大重试次数
     private static final int RETRY_DELAY = 200; // 重试延迟（毫秒）
     private static final int SCROLL_WAIT = 30; // 动态加载等待时间（毫秒）
+    private static final int PAGE_DELAY_MS = 1000; // 同一站点页面请求间隔（毫秒）
+    private static final int PAGE_DELAY_JITTER_MS = 2000; // 页面请求随机抖动（毫秒）
+    private static final int IMAGE_DELAY_MS = 50; // 同一图片主机请求间隔（毫秒）
+    private static final int IMAGE_DELAY_JITTER_MS = 100; // 图片请求随机抖动（毫秒）
+    private static final int IMAGE_WORKERS = 4; // 图片下载线程数
+    private static final long MAX_IMAGE_BYTES = StreamingDownloader.DEFAULT_MAX_BYTES; // 限制图片大小为10MB
+    private static final long MIN_IMAGE_BYTES = 100; // 小于100字节可能是无效图片
+    private static final int MAX_PAGE_BYTES = Integer.getInteger("crawler.maxPageBytes", 8 * 1024 * 1024); // 页面大小上限，超出部分不读取
     private static final String[] USER_AGENTS = {
         "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36",
         "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.6 Safari/605.1.15",
@@ -31,31 +34,15 @@ public class AutoImaCrawler {
     private static final Random random = new Random();
     private static final Map<String, Integer> imageStats = new HashMap<>();
     private static int currentUrlCount = 0;
-    private static final PriorityQueue<UrlEntry> urlQueue = new PriorityQueue<>(); // URL优先级队列
-    private static final Set<String> processedUrls = new HashSet<>(); // 已处理的URL集合
-    private static final int MAX_MEMORY_USAGE = 100 * 1024 * 1024; // 最大内存使用限制（100MB）
-    
-    // URL条目类，用于优先级队列
-    private static class UrlEntry implements Comparable<UrlEntry> {
-        String url;
-        int priority;
-        long timestamp;
-        
-        public UrlEntry(String url, int priority) {
-            this.url = url;
-            this.priority = priority;
-            this.timestamp = System.currentTimeMillis();
-        }
-        
-        @Override
-        public int compareTo(UrlEntry other) {
-            int result = Integer.compare(other.priority, this.priority); // 优先级高的先处理
-            if (result == 0) {
-                result = Long.compare(this.timestamp, other.timestamp); // 时间戳早的先处理
-            }
-            return result;
-        }
-    }
+    private static final HostScheduler scheduler = new HostScheduler(IMAGE_DELAY_MS, IMAGE_DELAY_JITTER_MS); // 按主机调度请求间隔
+    // URL优先级队列（带去重索引），超出内存队首的部分溢出到磁盘分段文件
+    private static final UrlFrontier urlFrontier = new UrlFrontier(FingerprintVisitedStore.withDefaults(),
+            Paths.get(SAVE_DIR + "frontier-image"), UrlFrontier.DEFAULT_HOT_CAPACITY);
+    private static final VisitedStore processedUrls = FingerprintVisitedStore.withDefaults(); // 已处理的URL集合（指纹）
+    private static ImageStore imageStore; // 按内容寻址的图片存储，同一图片只保存一份
+    private static PageArchive pageArchive; // 分段压缩的原始页面归档
+    private static NearDuplicateIndex pageIndex; // 近似重复页面索引，重复页面只记为别名
+    private static final boolean SKIP_DUPLICATE_LINKS = Boolean.getBoolean("dedup.skipLinks"); // 近似重复页面是否不再扩展链接
 
     public static void main(String[] args) {
         try {
@@ -76,30 +63,37 @@ public class AutoImaCrawler {
         }
     }
 
-    private static void crawlAndDownload(String baseUrl) {
+    private static void crawlAndDownload(String baseUrl) throws IOException {
+        imageStore = new ImageStore(Paths.get(SAVE_DIR + "images"));
+        pageArchive = new PageArchive(Paths.get(SAVE_DIR + "pages"));
+        pageIndex = new NearDuplicateIndex(NearDuplicateIndex.DEFAULT_MAX_DISTANCE, Paths.get(SAVE_DIR + "pages", "aliases.tsv"));
         // 初始化URL队列
-        urlQueue.offer(new UrlEntry(baseUrl, 10)); // 起始URL优先级最高
-        String baseHost = extractHost(baseUrl);
+        urlFrontier.offer(UrlCanonicalizer.canonicalize(baseUrl), UrlFrontier.MAX_PRIORITY); // 起始URL优先级最高
+        String baseHost = UrlCanonicalizer.host(baseUrl);
+        scheduler.setHostDelay(baseHost, PAGE_DELAY_MS, PAGE_DELAY_JITTER_MS);
+        // 图片由工作线程按主机并行下载，页面抓取不必等待图片
+        scheduler.startWorkers("image", IMAGE_WORKERS, AutoImaCrawler::downloadScheduledImage);
         
-        while (!urlQueue.isEmpty() && currentUrlCount < MAX_URL_COUNT) {
-            // 检查内存使用情况
-            if (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() > MAX_MEMORY_USAGE) {
-                System.out.println("警告：内存使用接近限制，执行垃圾回收...");
-                System.gc();
-                try {
-                    Thread.sleep(1000); // 等待GC完成
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
+        while (!urlFrontier.isEmpty() && currentUrlCount < MAX_URL_COUNT) {
+            String currentUrl = urlFrontier.poll();
+            if (currentUrl == null) break;
             
-            UrlEntry entry = urlQueue.poll();
-            if (entry == null) break;
-            
-            String currentUrl = entry.url;
             processUrl(currentUrl, baseHost);
         }
+
+        try {
+            scheduler.close(); // 等待剩余图片下载完成
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            urlFrontier.close(); // 删除溢出分段文件
+            imageStore.close();
+            pageArchive.close();
+            pageIndex.close();
+            System.out.println("图片存储：" + imageStore.stats());
+            System.out.println("页面归档：共 " + pageArchive.size() + " 个页面");
+            System.out.println("页面判重：" + pageIndex.stats());
+        }
     }
 
     private static void processUrl(String url, String baseHost) {
@@ -111,6 +105,8 @@ public class AutoImaCrawler {
         int retryCount = 0;
         while (retryCount < MAX_RETRY_COUNT) {
             try {
+                // 反爬延迟（按主机调度）
+                scheduler.acquire(url);
                 System.out.println("\n处理URL：" + url + (retryCount > 0 ? " (重试次数: " + retryCount + ")" : ""));
                 
                 // 使用增强的连接配置
@@ -120,29 +116,30 @@ public class AutoImaCrawler {
                         .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
                         .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
                         .timeout(15000)
-                        .maxBodySize(0);
+                        .maxBodySize(MAX_PAGE_BYTES);
                 
-                Document document = conn.get();
+                HttpCache.Page page = HttpCache.shared().fetch(conn); // 页面未变化（304）时使用本地缓存
                 
                 // 等待动态加载
                 Thread.sleep(SCROLL_WAIT);
                 
-                // 保存HTML源码
-                saveHtmlToFile(document.html(), url);
-                
-                // 提取新的URL
-                extractNewUrls(document, baseHost);
-                
-                // 下载图片
-                downloadImages(document);
+                // 流式扫描页面：收集新的URL和图片并计算页面指纹，不构建DOM
+                PageLinks links = scanPage(page, baseHost);
+                String original = pageIndex.findOrAdd(page.url(), links.hash);
+                if (original != null) {
+                    // 近似重复页面（打印版、镜像地址等）：记为别名，不归档，图片已随原页面加入下载队列
+                    System.out.println("近似重复页面，记为别名：" + page.url() + " -> " + original);
+                    if (!SKIP_DUPLICATE_LINKS) links.offerLinks();
+                } else {
+                    // 归档原始响应（未变化且已归档的页面不重复写入）
+                    archivePage(page);
+                    links.offerLinks();
+                    links.queueImages();
+                }
                 
                 // 标记URL为已处理
                 processedUrls.add(url);
                 
-                // 反爬延迟（使用指数退避）
-                int delay = 1000 + random.nextInt(2000) * (retryCount + 1);
-                Thread.sleep(delay);
-                
                 break; // 成功处理，退出重试循环
                 
             } catch (Exception e) {
@@ -162,116 +159,147 @@ public class AutoImaCrawler {
         }
     }
 
-    private static void extractNewUrls(Document document, String baseHost) {
-        Elements links = document.select("a[href]");
-        for (Element link : links) {
-            String newUrl = link.attr("abs:href").trim();
+    private static PageLinks scanPage(HttpCache.Page page, String baseHost) throws IOException {
+        PageLinks links = new PageLinks(page.url(), baseHost);
+        try (Reader reader = LinkScanner.reader(new ByteArrayInputStream(page.body()), page.charset())) {
+            LinkScanner.scan(reader, links);
+        }
+        System.out.println("找到图片元素数量：" + links.imageCount);
+        return links;
+    }
+
+    // 页面扫描回调：先收集站内链接和图片，判重之后再加入URL队列和下载队列。
+    // 页面指纹只由会下载的图片地址计算：导航、页脚等链接每页都相同，计入后不同图库页也会判为近似
+    private static class PageLinks implements LinkScanner.Listener {
+        private final String pageUrl;
+        private final String baseHost;
+        private final SimHash hash = new SimHash();
+        private final List<String> linkUrls = new ArrayList<>();
+        private final List<Integer> priorities = new ArrayList<>();
+        private final Set<String> imgUrls = new LinkedHashSet<>(); // src 与 data-src 指向同一图片时只保留一个
+        private int imageCount = 0;
+
+        PageLinks(String pageUrl, String baseHost) {
+            this.pageUrl = pageUrl;
+            this.baseHost = baseHost;
+        }
+
+        @Override
+        public void onLink(String href, String text, int depth, boolean hasImage) {
+            String newUrl = UrlCanonicalizer.resolve(pageUrl, href);
             if (isValidUrl(newUrl, baseHost)) {
+                linkUrls.add(newUrl);
+                priorities.add(calculateUrlPriority(text, depth, hasImage)); // 计算URL优先级
+            }
+        }
+
+        @Override
+        public void onImage(String src, String dataSrc) {
+            imageCount++;
+            // 按页面地址解析并规范化
+            String resolvedDataSrc = dataSrc != null ? UrlCanonicalizer.resolve(pageUrl, dataSrc) : null;
+            String resolvedSrc = src != null ? UrlCanonicalizer.resolve(pageUrl, src) : null;
+
+            if (resolvedDataSrc != null && imgUrls.add(resolvedDataSrc) && isContentImage(resolvedDataSrc)) {
+                hash.add(resolvedDataSrc);
+            }
+            if (resolvedSrc != null && imgUrls.add(resolvedSrc) && isContentImage(resolvedSrc)) {
+                hash.add(resolvedSrc);
+            }
+        }
+
+        // 新链接加入URL队列
+        void offerLinks() {
+            for (int i = 0; i < linkUrls.size(); i++) {
+                String newUrl = linkUrls.get(i);
                 if (currentUrlCount >= MAX_URL_COUNT) {
                     System.out.println("已达到最大URL爬取数量限制：" + MAX_URL_COUNT);
                     return;
                 }
-                if (!processedUrls.contains(newUrl) && !isUrlInQueue(newUrl)) {
-                    // 计算URL优先级
-                    int priority = calculateUrlPriority(link);
-                    urlQueue.offer(new UrlEntry(newUrl, priority));
+                if (!urlFrontier.isSeen(newUrl)) {
+                    int priority = priorities.get(i);
+                    urlFrontier.offer(newUrl, priority);
                     currentUrlCount++;
                     System.out.println("新增URL：" + newUrl + " (优先级: " + priority + ", " + currentUrlCount + "/" + MAX_URL_COUNT + ")");
                 }
             }
         }
+
+        // 图片加入下载队列
+        void queueImages() {
+            for (String imgUrl : imgUrls) {
+                processImage(imgUrl);
+            }
+        }
     }
     
-    private static boolean isUrlInQueue(String url) {
-        return urlQueue.stream().anyMatch(entry -> entry.url.equals(url));
-    }
-    
-    private static int calculateUrlPriority(Element link) {
+    private static int calculateUrlPriority(String linkText, int depth, boolean hasImage) {
         int priority = 5; // 默认优先级
         
         // 根据链接文本包含的关键词调整优先级
-        String linkText = link.text().toLowerCase();
+        linkText = linkText.toLowerCase();
         if (linkText.contains("图片") || linkText.contains("相册") || linkText.contains("photo")) {
             priority += 3;
         }
         
         // 根据链接的位置调整优先级
-        if (link.parents().size() < 3) { // 靠近页面顶部的链接
+        if (depth < 3) { // 靠近页面顶部的链接
             priority += 2;
         }
         
         // 根据链接是否有缩略图调整优先级
-        if (!link.select("img").isEmpty()) {
+        if (hasImage) {
             priority += 2;
         }
         
         return Math.min(priority, 10); // 确保优先级不超过10
     }
 
-    private static void downloadImages(Document document) {
-        Elements imageElements = document.select("img");
-        System.out.println("找到图片元素数量：" + imageElements.size());
-
-        for (Element img : imageElements) {
-            Set<String> imgUrls = new HashSet<>();
-            String dataSrc = img.attr("data-src");
-            String src = img.attr("src");
-            
-            if (!dataSrc.isEmpty()) imgUrls.add(dataSrc);
-            if (!src.isEmpty()) imgUrls.add(src);
-            
-            for (String imgUrl : imgUrls) {
-                processImage(imgUrl);
-            }
-        }
-    }
-
     private static void processImage(String imgUrl) {
         try {
             String imgUrlLower = imgUrl.toLowerCase();
             String extension = getImageExtension(imgUrlLower);
             if (extension == null) return;
 
-            imgUrl = processImageUrl(imgUrl);
-            if (imgUrl == null || imgUrl.contains("grey.gif")) return;
+            if (imgUrl.contains("grey.gif")) return;
 
-            System.out.println("下载" + extension.substring(1) + "图片：" + imgUrl);
-            downloadImage(imgUrl, extension);
-            
-            // 反爬延迟
-            Thread.sleep(50 + random.nextInt(100));
+            System.out.println("加入下载队列" + extension.substring(1) + "图片：" + imgUrl);
+            scheduler.submit(imgUrl);
             
         } catch (Exception e) {
             System.err.println("处理图片失败：" + imgUrl + "，错误：" + e.getMessage());
         }
     }
 
-    // ==================== 工具方法 ====================
-
-    private static String extractHost(String url) {
+    // 图片下载线程：调度器只会交出所在主机已到请求间隔的图片URL
+    private static void downloadScheduledImage(String imgUrl) {
         try {
-            Pattern pattern = Pattern.compile("(https?://)?[^/\\s]*");
-            Matcher matcher = pattern.matcher(url);
-            if (matcher.find()) {
-                return matcher.group();
-            }
+            String extension = imgUrl.substring(imgUrl.lastIndexOf('.')).toLowerCase();
+            System.out.println("下载" + extension.substring(1) + "图片：" + imgUrl);
+            downloadImage(imgUrl, extension);
         } catch (Exception e) {
-            System.err.println("提取主机名失败：" + e.getMessage());
+            System.err.println("处理图片失败：" + imgUrl + "，错误：" + e.getMessage());
         }
-        return url;
     }
 
+    // ==================== 工具方法 ====================
+
     private static boolean isValidUrl(String url, String baseHost) {
-        return url != null && !url.isEmpty() 
-            && url.contains(baseHost)
-            && !url.contains("#")
-            && !url.contains("javascript:")
+        // url 已经过规范化（锚点已去除、javascript: 等返回 null），这里只需精确比较主机
+        return url != null
+            && UrlCanonicalizer.isSameHost(url, baseHost)
             && !url.endsWith(".jpg")
             && !url.endsWith(".jpeg")
             && !url.endsWith(".png")
             && !url.endsWith(".gif");
     }
 
+    // 与 processImage 的过滤一致：只有会被下载的图片算作页面内容，占位图（grey.gif）等不计
+    private static boolean isContentImage(String imgUrl) {
+        String lower = imgUrl.toLowerCase();
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+    }
+
     private static String getImageExtension(String url) {
         if (url.endsWith(".jpg")) {
             imageStats.put("jpg", imageStats.get("jpg") + 1);
@@ -286,66 +314,31 @@ public class AutoImaCrawler {
         return null;
     }
 
-    private static void saveHtmlToFile(String htmlContent, String url) {
+    private static void archivePage(HttpCache.Page page) {
+        if (page.fromCache() && pageArchive.contains(page.url())) return;
         try {
-            String fileName = "page_" + UUID.randomUUID().toString().substring(0, 8) + ".html";
-            File saveDir = new File(SAVE_DIR);
-            if (!saveDir.exists()) saveDir.mkdirs();
-            
-            File outputFile = new File(SAVE_DIR + fileName);
-            FileUtils.writeStringToFile(outputFile, htmlContent, StandardCharsets.UTF_8);
-            System.out.println("保存HTML源码：" + outputFile.getAbsolutePath());
+            pageArchive.append(page.url(), page.headers(), System.currentTimeMillis(), page.body());
+            System.out.println("归档页面：" + page.url());
         } catch (IOException e) {
-            System.err.println("保存HTML失败：" + url + "，错误：" + e.getMessage());
+            System.err.println("归档页面失败：" + page.url() + "，错误：" + e.getMessage());
         }
     }
 
-    private static String processImageUrl(String imgUrl) {
-        if (imgUrl.startsWith("//")) {
-            return "https:" + imgUrl;
-        } else if (imgUrl.startsWith("/")) {
-            return BASE_URL + imgUrl.substring(1);
-        } else if (!imgUrl.startsWith("http")) {
-            return "https://" + imgUrl;
-        }
-        return imgUrl;
-    }
-
     private static void downloadImage(String imgUrl, String extension) throws IOException {
         int retryCount = 0;
         while (retryCount < MAX_RETRY_COUNT) {
             try {
-                Connection.Response response = Jsoup.connect(imgUrl)
+                Connection conn = Jsoup.connect(imgUrl)
                         .userAgent(getRandomUserAgent())
                         .header("Accept", "image/webp,image/apng,image/*,*/*;q=0.8")
                         .header("Accept-Encoding", "gzip, deflate, br")
                         .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                        .ignoreContentType(true)
-                        .timeout(5000 * (retryCount + 1)) // 递增超时时间
-                        .maxBodySize(10 * 1024 * 1024) // 限制图片大小为10MB
-                        .execute();
-
-                // 验证响应内容类型
-                String contentType = response.contentType();
-                if (contentType != null && !contentType.toLowerCase().startsWith("image/")) {
-                    throw new IOException("无效的图片内容类型：" + contentType);
-                }
+                        .timeout(5000 * (retryCount + 1)); // 递增超时时间
 
-                String fileName = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
-                File outputFile = new File(SAVE_DIR + fileName + extension);
-                
-                // 使用try-with-resources确保资源正确关闭
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(response.bodyAsBytes())) {
-                    FileUtils.copyInputStreamToFile(bis, outputFile);
-                }
-                
-                // 验证文件大小
-                if (outputFile.length() < 100) { // 小于100字节可能是无效图片
-                    outputFile.delete();
-                    throw new IOException("下载的图片文件过小，可能是无效图片");
-                }
+                // 边下载边计算摘要，超过10MB或小于100字节（可能是无效图片）时中止；URL或内容已存在时不重复保存
+                Path saved = imageStore.store(imgUrl, conn, extension, MAX_IMAGE_BYTES, MIN_IMAGE_BYTES);
                 
-                System.out.println("成功下载图片：" + outputFile.getAbsolutePath());
+                System.out.println("成功下载图片：" + saved.toAbsolutePath());
                 break; // 成功下载，退出重试循环
                 
             } catch (IOException e) {
@@ -375,6 +368,7 @@ public class AutoImaCrawler {
         int totalImages = imageStats.values().stream().mapToInt(Integer::intValue).sum();
         System.out.println("\n爬取完成！统计信息：");
         System.out.println("总计爬取URL数量：" + currentUrlCount);
+        System.out.println("HTTP缓存：" + HttpCache.shared().stats());
         System.out.println("总计下载图片数量：" + totalImages);
         System.out.println("图片类型统计：");
         System.out.println("- JPG图片：" + imageStats.get("jpg") + "张");
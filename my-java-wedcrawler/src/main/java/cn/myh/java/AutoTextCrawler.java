@@ -1,32 +1,57 @@
 package cn.myh.java;
 
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 public class AutoTextCrawler {
     private static final String BASE_URL = "https://sanguo.5000yan.com/";
+    private static final String BASE_HOST = UrlCanonicalizer.host(BASE_URL);
     private static final String OUTPUT_DIR = "D:\\新建文件夹\\";
-    private static final int MAX_URL_LIMIT = 100;
+    private static final int MAX_URL_LIMIT = Integer.getInteger("crawler.maxUrls", 100);
     private static final int REQUEST_DELAY_MS = 200;  // 请求间隔2秒
-    private static final Set<String> visitedUrls = new LinkedHashSet<>();
-    private static int chapterCount = 0;
+    private static final Pattern CHAPTER_URL_PATTERN = Pattern.compile(".*/(n/\\d+|\\d+)\\.html"); // 更宽松的章节URL匹配
+    // 并发抓取数，默认 1 为顺序模式；-Dcrawler.concurrency=N（N>1）启用并发模式，抓取顺序不再固定
+    private static final int CONCURRENCY = Integer.getInteger("crawler.concurrency", 1);
+    private static final HostScheduler scheduler = new HostScheduler(REQUEST_DELAY_MS, 0);
+    private static final VisitedStore visitedUrls = FingerprintVisitedStore.withDefaults(); // 线程安全的已访问URL指纹集合
+    private static final AtomicInteger chapterCount = new AtomicInteger();
+    private static final AsyncFileWriter chapterWriter = AsyncFileWriter.withDefaults("chapter-writer"); // 章节文件异步落盘
+    // 正文近似的章节（镜像地址、打印版等）只记为别名，不重复保存
+    private static final NearDuplicateIndex chapterIndex = new NearDuplicateIndex(
+            NearDuplicateIndex.DEFAULT_MAX_DISTANCE, Paths.get(OUTPUT_DIR + "aliases.tsv"));
+    // -Ddedup.skipLinks=true 时近似重复的页面也不再提取链接
+    private static final boolean SKIP_DUPLICATE_LINKS = Boolean.getBoolean("dedup.skipLinks");
 
     public static void main(String[] args) {
         // 确保输出目录存在
         createOutputDirectory();
-        crawlAllChapters(BASE_URL);
+        try {
+            if (CONCURRENCY > 1) {
+                crawlAllChaptersConcurrently(BASE_URL);
+            } else {
+                crawlAllChapters(BASE_URL);
+            }
+        } finally {
+            chapterWriter.close(); // 写完队列中剩余的章节
+            System.out.println("章节写入: " + chapterWriter.stats());
+            chapterIndex.close();
+            System.out.println("章节判重: " + chapterIndex.stats());
+        }
     }
 
     private static void createOutputDirectory() {
@@ -38,100 +63,194 @@ public class AutoTextCrawler {
     }
 
     private static void crawlAllChapters(String startUrl) {
-        Queue<String> urlQueue = new LinkedList<>();
-        urlQueue.offer(startUrl);
+        try (UrlFrontier urlFrontier = newFrontier()) { // 入队即去重，同一URL只会排队一次
+            urlFrontier.offer(UrlCanonicalizer.canonicalize(startUrl), UrlFrontier.MAX_PRIORITY);
 
-        while (!urlQueue.isEmpty() && visitedUrls.size() < MAX_URL_LIMIT) {
-            String currentUrl = urlQueue.poll();
-            if (visitedUrls.contains(currentUrl)) continue;
+            while (!urlFrontier.isEmpty() && visitedUrls.size() < MAX_URL_LIMIT) {
+                String currentUrl = urlFrontier.poll();
+                if (visitedUrls.contains(currentUrl)) continue;
 
-            try {
-                System.out.println("正在爬取: " + currentUrl);
-                Document doc = Jsoup.connect(currentUrl)
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36")
-                        .header("Accept-Language", "zh-CN,zh;q=0.9")
-                        .header("Referer", BASE_URL)
-                        .timeout(10_000)
-                        .get();
-
-                // 标记为已访问
-                visitedUrls.add(currentUrl);
-                System.out.println("已处理URL数: " + visitedUrls.size() + "/" + MAX_URL_LIMIT);
-
-                // 提取并保存章节内容
-                if (currentUrl.matches(".*/(n/\\d+|\\d+)\\.html")) {  // 更宽松的URL匹配
-                    crawlChapterContent(currentUrl);
-                }
+                crawlPage(currentUrl, urlFrontier);
+            }
+        }
+    }
+
+    // 待爬队列：内存中只保留各优先级队首，其余溢出到输出目录下的分段文件
+    private static UrlFrontier newFrontier() {
+        return new UrlFrontier(FingerprintVisitedStore.withDefaults(),
+                Paths.get(OUTPUT_DIR + "frontier-text"), UrlFrontier.DEFAULT_HOT_CAPACITY);
+    }
+
+    // 并发模式：抓取与解析在虚拟线程（旧版JDK为固定线程池）上执行，信号量限制同时在途的请求数
+    private static void crawlAllChaptersConcurrently(String startUrl) {
+        UrlFrontier urlFrontier = newFrontier();
+        urlFrontier.offer(UrlCanonicalizer.canonicalize(startUrl), UrlFrontier.MAX_PRIORITY);
+        Semaphore permits = new Semaphore(CONCURRENCY);
+        AtomicInteger inFlight = new AtomicInteger();
+        ExecutorService executor = newCrawlExecutor();
 
-                // 提取新链接
-                Elements links = doc.select("a[href]");
-                for (Element link : links) {
-                    String newUrl = link.absUrl("href");
-                    if (isValidUrl(newUrl) && !visitedUrls.contains(newUrl)) {
-                        urlQueue.offer(newUrl);
+        try {
+            while (visitedUrls.size() < MAX_URL_LIMIT) {
+                permits.acquire();
+                String currentUrl = urlFrontier.poll();
+                if (currentUrl == null) {
+                    permits.release();
+                    // 队列暂空：等待在途页面提交新链接，全部完成且仍无新链接则结束
+                    synchronized (inFlight) {
+                        if (inFlight.get() == 0 && urlFrontier.isEmpty()) break;
+                        if (urlFrontier.isEmpty()) inFlight.wait();
                     }
+                    continue;
                 }
+                if (!visitedUrls.add(currentUrl)) {
+                    permits.release();
+                    continue;
+                }
+
+                inFlight.incrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        crawlPage(currentUrl, urlFrontier);
+                    } finally {
+                        permits.release();
+                        synchronized (inFlight) {
+                            inFlight.decrementAndGet();
+                            inFlight.notifyAll();
+                        }
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            urlFrontier.close();
+        }
+        System.out.println("抓取完成，共处理URL: " + visitedUrls.size() + "，保存章节: " + chapterCount.get());
+    }
+
+    // JDK 21+ 使用虚拟线程，旧版JDK退回到与并发数相同的固定线程池
+    private static ExecutorService newCrawlExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(CONCURRENCY);
+        }
+    }
+
+    // 抓取单个页面：保存章节内容并把新链接加入队列
+    private static void crawlPage(String currentUrl, UrlFrontier urlFrontier) {
+        try {
+            // 请求间隔（按主机调度）
+            scheduler.acquire(currentUrl);
+            System.out.println("正在爬取: " + currentUrl);
+            Connection.Response response = Jsoup.connect(currentUrl)
+                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36")
+                    .header("Accept-Language", "zh-CN,zh;q=0.9")
+                    .header("Referer", BASE_URL)
+                    .timeout(10_000)
+                    .execute();
 
-                // 请求间隔
-                TimeUnit.MILLISECONDS.sleep(REQUEST_DELAY_MS);
+            // 标记为已访问
+            visitedUrls.add(currentUrl);
+            System.out.println("已处理URL数: " + visitedUrls.size() + "/" + MAX_URL_LIMIT);
 
-            } catch (IOException | InterruptedException e) {
-                System.err.println("处理URL失败: " + currentUrl + " | 错误: " + e.getMessage());
+            if (CHAPTER_URL_PATTERN.matcher(currentUrl).matches()) {
+                // 章节页需要提取正文才构建DOM，正文和链接共用同一个文档
+                Document doc = response.parse();
+                boolean duplicate = crawlChapterContent(doc, currentUrl);
+                if (!duplicate || !SKIP_DUPLICATE_LINKS) {
+                    extractNewUrls(doc, urlFrontier);
+                }
+            } else {
+                // 目录等页面只需要链接：边接收响应边扫描，不构建DOM
+                String pageUrl = response.url().toExternalForm();
+                try (Reader reader = LinkScanner.reader(response.bodyStream(), response.charset())) {
+                    LinkScanner.scan(reader, (href, text, depth, hasImage) -> offerLink(pageUrl, href, urlFrontier));
+                }
             }
+        } catch (IOException | InterruptedException e) {
+            System.err.println("处理URL失败: " + currentUrl + " | 错误: " + e.getMessage());
+        }
+    }
+
+    // 提取新链接
+    private static void extractNewUrls(Document doc, UrlFrontier urlFrontier) {
+        Elements links = doc.select("a[href]");
+        for (Element link : links) {
+            offerLink(doc.location(), link.attr("href"), urlFrontier);
+        }
+    }
+
+    private static void offerLink(String pageUrl, String href, UrlFrontier urlFrontier) {
+        String newUrl = UrlCanonicalizer.resolve(pageUrl, href);
+        if (isValidUrl(newUrl)) {
+            urlFrontier.offer(newUrl, UrlFrontier.MIN_PRIORITY);
         }
     }
 
     private static boolean isValidUrl(String url) {
-        return url.startsWith(BASE_URL) 
-                && !url.contains("javascript:")
-                && !url.contains("#")
+        // url 已经过规范化（锚点已去除、javascript: 等返回 null）
+        return url != null
+                && UrlCanonicalizer.isSameHost(url, BASE_HOST)
                 && !url.endsWith(".css")
                 && !url.endsWith(".js")
                 && visitedUrls.size() < MAX_URL_LIMIT;
     }
 
-    private static void crawlChapterContent(String url) {
-        try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)...")
-                    .timeout(10_000)
-                    .get();
+    // 保存章节正文；返回 true 表示与已保存的章节近似重复，只记录了别名
+    private static boolean crawlChapterContent(Document doc, String url) throws InterruptedException {
+        // 提取标题
+        Element titleElement = doc.selectFirst("h1");
+        if (titleElement == null) {
+            System.err.println("未找到标题: " + url);
+            return false;
+        }
+        String title = titleElement.text().replaceAll(" - 三国演义$", "").trim();
+        System.out.println("正在保存章节: " + title);
 
-            // 提取标题
-            Element titleElement = doc.selectFirst("h1");
-            if (titleElement == null) {
-                System.err.println("未找到标题: " + url);
-                return;
-            }
-            String title = titleElement.text().replaceAll(" - 三国演义$", "").trim();
-            System.out.println("正在保存章节: " + title);
-
-            // 提取正文
-            Elements paragraphs = doc.select("div");
-            if (paragraphs.isEmpty()) {
-                System.err.println("未找到正文内容: " + url);
-                return;
-            }
+        // 提取正文：只保留得分最高的正文区域，每段文字只输出一次
+        List<String> paragraphs = ContentExtractor.extract(doc.body());
+        if (paragraphs.isEmpty()) {
+            System.err.println("未找到正文内容: " + url);
+            return false;
+        }
 
-            // 构建内容
-            StringBuilder content = new StringBuilder();
-            content.append(title).append("\n\n");
-            paragraphs.forEach(p -> content.append(p.text()).append("\n\n"));
-
-            // 生成文件名（处理非法字符）
-            String safeTitle = title
-                    .replaceAll("[\\\\/:*?\"<>|]", "_")
-                    .replaceAll("\\s+", " ")
-                    .substring(0, Math.min(title.length(), 50));
-            String fileName = String.format("%03d_%s.txt", ++chapterCount, safeTitle);
-            File outputFile = new File(OUTPUT_DIR + fileName);
-
-            // 写入文件（UTF-8编码）
-            FileUtils.writeStringToFile(outputFile, content.toString(), StandardCharsets.UTF_8);
-            System.out.println("已保存文件: " + outputFile.getAbsolutePath());
-
-        } catch (IOException e) {
-            System.err.println("保存章节失败: " + url + " | 错误: " + e.getMessage());
+        // 按正文计算 SimHash，与已保存章节近似时只记录别名
+        SimHash hash = new SimHash();
+        paragraphs.forEach(hash::addShingles);
+        String original = chapterIndex.findOrAdd(url, hash);
+        if (original != null) {
+            System.out.println("近似重复章节，记为别名: " + url + " -> " + original);
+            return true;
         }
+
+        // 构建内容（正文区域内的章节标题已在开头写出，不再重复）
+        StringBuilder content = new StringBuilder();
+        content.append(title).append("\n\n");
+        String heading = titleElement.text();
+        for (String paragraph : paragraphs) {
+            if (!paragraph.equals(heading)) {
+                content.append(paragraph).append("\n\n");
+            }
+        }
+
+        // 生成文件名（处理非法字符）
+        String safeTitle = title
+                .replaceAll("[\\\\/:*?\"<>|]", "_")
+                .replaceAll("\\s+", " ")
+                .substring(0, Math.min(title.length(), 50));
+        String fileName = String.format("%03d_%s.txt", chapterCount.incrementAndGet(), safeTitle);
+        File outputFile = new File(OUTPUT_DIR + fileName);
+
+        // 交给写线程落盘（UTF-8编码），写入队列已满时在此等待
+        chapterWriter.write(outputFile.toPath(), content.toString());
+        System.out.println("已提交保存: " + outputFile.getAbsolutePath());
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package cn.myh.java;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 增量批量写库
+ * 爬虫边解析边 submit()，由独立的写线程攒批后执行 MERGE（按业务主键去重）并提交；
+ * 攒够 batchSize 条或距本批第一条超过 maxDelayMs 即写出一批。
+ * 队列有界，写库跟不上时 submit() 阻塞，内存中最多只保留几批数据。
+ * 可同时写多张表（如数据表和断点表），同一批在一个事务内提交。
+ */
+public class BatchUpsertWriter<T> implements AutoCloseable {
+    private static final Object END = new Object(); // 关闭标记
+    private static final long OFFER_TIMEOUT_MS = 100; // 队列满时每次等待的时长，之后重新检查写线程状态
+
+    /**
+     * 把一条数据绑定到 MERGE 语句的参数上
+     */
+    @FunctionalInterface
+    public interface Binder<T> {
+        void bind(PreparedStatement pstmt, T item) throws SQLException;
+    }
+
+    private final String jdbcUrl;
+    private final List<String> initSql;
+    private final Map<String, Binder<T>> upserts; // MERGE 语句 -> 参数绑定，按顺序执行
+    private final int batchSize;
+    private final long maxDelayMs;
+    private final BlockingQueue<Object> queue;
+    private final Thread writer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * 创建并启动写线程
+     * @param name       写线程名
+     * @param initSql    写线程连接数据库后先执行的语句（建表、迁移、建索引等）
+     * @param upsertSql  带参数的 MERGE 语句
+     * @param batchSize  每批最多条数
+     * @param maxDelayMs 一批最长等待时间（毫秒）
+     */
+    public BatchUpsertWriter(String name, String jdbcUrl, List<String> initSql, String upsertSql,
+                             Binder<T> binder, int batchSize, long maxDelayMs) {
+        this(name, jdbcUrl, initSql, Collections.singletonMap(upsertSql, binder), batchSize, maxDelayMs);
+    }
+
+    /**
+     * 每条数据依次写入多条 MERGE 语句，同一批的所有语句在一个事务内提交
+     * @param upserts MERGE 语句及其参数绑定，按迭代顺序执行
+     */
+    public BatchUpsertWriter(String name, String jdbcUrl, List<String> initSql, Map<String, Binder<T>> upserts,
+                             int batchSize, long maxDelayMs) {
+        this.jdbcUrl = jdbcUrl;
+        this.initSql = initSql;
+        this.upserts = new LinkedHashMap<>(upserts);
+        this.batchSize = batchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.queue = new ArrayBlockingQueue<>(batchSize * 4);
+        this.writer = new Thread(this::run, name);
+        writer.start();
+    }
+
+    /**
+     * 提交一条数据，队列已满时阻塞
+     * @throws IllegalStateException 已关闭或写线程已退出
+     */
+    public void submit(T item) throws InterruptedException {
+        // 与 close() 持有同一把锁：关闭标记 END 入队后不会再有数据排在它后面
+        synchronized (this) {
+            while (true) {
+                if (closed || !writer.isAlive()) {
+                    throw new IllegalStateException("写库线程已关闭");
+                }
+                if (queue.offer(item, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待已提交的数据全部写完并结束写线程，可重复调用
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                joinWriter();
+                return;
+            }
+            closed = true;
+        }
+        // closed 已置位，之后的 submit() 都会失败，END 一定排在全部已提交数据之后
+        try {
+            while (writer.isAlive() && !queue.offer(END, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                // 写线程仍在消费，继续等待队列腾出位置
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        joinWriter();
+    }
+
+    /** 已写入（含更新）的条数 */
+    public long writtenCount() {
+        return written.get();
+    }
+
+    public String stats() {
+        return String.format("写入 %d 条，共 %d 批，失败 %d 条", written.get(), batches.get(), failed.get());
+    }
+
+    private void joinWriter() {
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() {
+        try (Connection conn = DriverManager.getConnection(jdbcUrl)) {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : initSql) {
+                    stmt.executeUpdate(sql);
+                }
+            }
+            conn.setAutoCommit(false);
+            Map<PreparedStatement, Binder<T>> statements = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<String, Binder<T>> e : upserts.entrySet()) {
+                    statements.put(conn.prepareStatement(e.getKey()), e.getValue());
+                }
+                List<T> batch = new ArrayList<>(batchSize);
+                boolean end = false;
+                while (!end) {
+                    Object first = queue.take();
+                    if (first == END) break;
+                    batch.add((T) first);
+                    long deadline = System.currentTimeMillis() + maxDelayMs;
+                    while (batch.size() < batchSize) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        Object next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+                        if (next == null) break;
+                        if (next == END) {
+                            end = true;
+                            break;
+                        }
+                        batch.add((T) next);
+                    }
+                    writeBatch(conn, statements, batch);
+                    batch.clear();
+                }
+            } finally {
+                for (PreparedStatement pstmt : statements.keySet()) {
+                    pstmt.close();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[ERROR] 数据库操作失败: " + e);
+            drainOnFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatch(Connection conn, Map<PreparedStatement, Binder<T>> statements, List<T> batch)
+            throws SQLException {
+        try {
+            for (Map.Entry<PreparedStatement, Binder<T>> e : statements.entrySet()) {
+                PreparedStatement pstmt = e.getKey();
+                for (T item : batch) {
+                    e.getValue().bind(pstmt, item);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (SQLException | RuntimeException e) {
+            // 绑定参数时的运行时异常（如数据不完整）只丢弃本批，写线程继续
+            for (PreparedStatement pstmt : statements.keySet()) {
+                pstmt.clearBatch();
+            }
+            conn.rollback();
+            failed.addAndGet(batch.size());
+            System.err.printf("[ERROR] 批量写入失败（%d 条）: %s%n", batch.size(), e.getMessage());
+        }
+    }
+
+    // 数据库不可用时继续取走队列中的数据，避免 submit() 永久阻塞
+    private void drainOnFailure() {
+        try {
+            while (queue.take() != END) {
+                failed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
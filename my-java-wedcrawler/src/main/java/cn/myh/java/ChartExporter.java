@@ -0,0 +1,68 @@
+package cn.myh.java;
+
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * 无界面图表导出
+ * 无显示环境（服务器定时任务）下不打开 Swing 窗口，而是把图表并行渲染成 PNG 文件，
+ * 渲染在后台线程进行，可与文本报告同时生成。只使用离屏 BufferedImage，不访问 AWT 显示。
+ */
+public final class ChartExporter {
+    private static final int WIDTH = Integer.getInteger("chart.width", 800);
+    private static final int HEIGHT = Integer.getInteger("chart.height", 600);
+
+    private ChartExporter() {}
+
+    /**
+     * 判断是否使用无界面模式：命令行 --headless、-Dcrawler.headless=true 或当前环境本身没有显示设备。
+     * 需在创建任何图表之前调用；显式要求时会设置 java.awt.headless。
+     */
+    public static boolean useHeadless(String[] args) {
+        if (Arrays.asList(args).contains("--headless") || Boolean.getBoolean("crawler.headless")) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        return GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * 在后台并行把图表保存为 PNG
+     * @param charts 文件名（不含扩展名） -> 图表
+     * @return 全部渲染结束后完成，结果为成功写出的文件；单个图表失败只记录错误
+     */
+    public static CompletableFuture<List<Path>> renderAsync(Map<String, JFreeChart> charts, Path dir) {
+        List<CompletableFuture<Path>> tasks = new ArrayList<>();
+        for (Map.Entry<String, JFreeChart> e : charts.entrySet()) {
+            Path target = dir.resolve(e.getKey() + ".png");
+            tasks.add(CompletableFuture.supplyAsync(() -> render(e.getValue(), target)));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> tasks.stream()
+                        .map(CompletableFuture::join)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+    }
+
+    private static Path render(JFreeChart chart, Path target) {
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            ChartUtils.saveChartAsPNG(target.toFile(), chart, WIDTH, HEIGHT);
+            return target;
+        } catch (IOException e) {
+            System.err.println("[ERROR] 图表保存失败: " + target + " | " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package cn.myh.java;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 正文抽取
+ * 对已解析的页面只遍历一遍：文本按块级元素和 &lt;br&gt; 切分成段落，每个文本节点只计入它所在的最近一层块，
+ * 不会像对每个 div 取 text() 那样被每层祖先重复输出。
+ * 段落按文字数、链接文字占比和标签密度打分，分数累加到所在块（&lt;p&gt; 从其父元素算起）及其上两层（逐层减半），
+ * 得分最高的块即正文区域，只输出其中链接占比不高的段落；导航、目录、页脚等以链接为主的区域被丢弃。
+ */
+public final class ContentExtractor {
+    private static final double MAX_LINK_DENSITY = 0.5;  // 链接文字占比超过此值的段落视为导航
+    private static final double MIN_TEXT_DENSITY = 2.0;  // 平均每个标签的文字数低于此值的段落不参与打分
+    private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList(
+            "address", "article", "aside", "blockquote", "body", "center", "dd", "div", "dl", "dt", "fieldset",
+            "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li",
+            "main", "nav", "ol", "p", "pre", "section", "table", "tbody", "td", "th", "thead", "tr", "ul"));
+    private static final Set<String> HEADINGS = new HashSet<>(Arrays.asList("h1", "h2", "h3", "h4", "h5", "h6"));
+    // 不含正文的元素，整棵子树跳过
+    private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList(
+            "head", "script", "style", "noscript", "template", "iframe", "select", "textarea", "button"));
+
+    private ContentExtractor() {}
+
+    /**
+     * 抽取正文段落（按文档顺序，空白已合并）
+     * @param root 通常为 document.body()
+     * @return 没有可识别的正文时为空列表
+     */
+    public static List<String> extract(Element root) {
+        Walker walker = new Walker(root);
+        NodeTraversor.filter(walker, root);
+        walker.flush();
+        return select(walker.paragraphs);
+    }
+
+    /**
+     * 抽取正文，段落之间空一行
+     */
+    public static String extractText(Element root) {
+        return String.join("\n\n", extract(root));
+    }
+
+    // 给段落打分并累加到所在块，取得分最高的块，输出其中的正文段落
+    private static List<String> select(List<Paragraph> paragraphs) {
+        Map<Element, Double> scores = new IdentityHashMap<>();
+        Element best = null;
+        double bestScore = 0;
+        for (Paragraph p : paragraphs) {
+            double score = p.score();
+            if (score <= 0) continue;
+            // <p> 本身只是一段，从容纳它的区域开始计分，避免一个长段落胜过由多段组成的正文
+            Element block = p.block.nameIs("p") ? p.block.parent() : p.block;
+            for (int level = 0; level < 3 && block != null; level++, block = block.parent()) {
+                double total = scores.merge(block, score, Double::sum);
+                if (total > bestScore) {
+                    bestScore = total;
+                    best = block;
+                }
+                score /= 2;
+            }
+        }
+        List<String> content = new ArrayList<>();
+        if (best == null) return content;
+        for (Paragraph p : paragraphs) {
+            if (p.isContent() && p.isWithin(best)) {
+                content.add(p.text);
+            }
+        }
+        return content;
+    }
+
+    // 一段文字：两个块边界（或 <br>）之间的全部文本
+    private static final class Paragraph {
+        final Element block;  // 所在的最近一层块级元素
+        final String text;
+        final int chars;      // 非空白字符数
+        final int linkChars;  // 其中位于链接内的字符数
+        final int tags;       // 段落内的行内标签数
+
+        Paragraph(Element block, String text, int chars, int linkChars, int tags) {
+            this.block = block;
+            this.text = text;
+            this.chars = chars;
+            this.linkChars = linkChars;
+            this.tags = tags;
+        }
+
+        boolean isContent() {
+            return chars > 0 && (double) linkChars / chars <= MAX_LINK_DENSITY;
+        }
+
+        // 标题不参与打分，只在所在区域被选中时随正文输出
+        double score() {
+            if (!isContent() || HEADINGS.contains(block.normalName())) return 0;
+            if ((double) chars / (tags + 1) < MIN_TEXT_DENSITY) return 0;
+            return chars - linkChars;
+        }
+
+        boolean isWithin(Element ancestor) {
+            for (Element e = block; e != null; e = e.parent()) {
+                if (e == ancestor) return true;
+            }
+            return false;
+        }
+    }
+
+    // 一遍遍历：维护当前所在的块和是否在链接内，文本追加到当前段落，遇到块边界时结束段落
+    private static final class Walker implements NodeFilter {
+        final List<Paragraph> paragraphs = new ArrayList<>();
+        private final Element root;
+        private final Deque<Element> blocks = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+        private int chars;
+        private int linkChars;
+        private int tags;
+        private int linkDepth;
+
+        Walker(Element root) {
+            this.root = root;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof TextNode) {
+                append(((TextNode) node).getWholeText());
+            } else if (node instanceof Element) {
+                String name = ((Element) node).normalName();
+                if (SKIPPED.contains(name)) return FilterResult.SKIP_ENTIRELY;
+                if (BLOCKS.contains(name)) {
+                    flush();
+                    blocks.push((Element) node);
+                } else if (name.equals("br")) {
+                    flush();
+                } else {
+                    if (name.equals("a")) linkDepth++;
+                    tags++;
+                }
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            if (node instanceof Element) {
+                if (node == blocks.peek()) {
+                    flush();
+                    blocks.pop();
+                } else if (((Element) node).normalName().equals("a")) {
+                    linkDepth--;
+                }
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        // 合并空白（含 &nbsp; 和全角空格），只统计可见字符
+        private void append(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (Character.isWhitespace(c) || c == '\u00a0' || c == '\u3000') {
+                    if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                        text.append(' ');
+                    }
+                } else {
+                    text.append(c);
+                    chars++;
+                    if (linkDepth > 0) linkChars++;
+                }
+            }
+        }
+
+        void flush() {
+            if (chars > 0) {
+                Element block = blocks.isEmpty() ? root : blocks.peek();
+                paragraphs.add(new Paragraph(block, text.toString().trim(), chars, linkChars, tags));
+            }
+            text.setLength(0);
+            chars = 0;
+            linkChars = 0;
+            tags = 0;
+        }
+    }
+}
@@ -1,21 +1,18 @@
 package cn.myh.java;
 
-import org.apache.commons.io.FileUtils;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
-import java.util.UUID;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /* 1，"https://www.nipic.com/topic/show_29204_1.html"
  * 2."https://www.nipic.com/media/shipai/dongzhi/index.html"
@@ -37,97 +34,51 @@ public class EnhancedImageCrawler {
     };
     private static final Random random = new Random();
     private static final Map<String, Integer> imageStats = new HashMap<>();
+    private static final int IMAGE_DELAY_MS = 50; // 同一图片主机请求间隔（毫秒）
+    private static final int IMAGE_DELAY_JITTER_MS = 100; // 图片请求随机抖动（毫秒）
+    private static final int IMAGE_WORKERS = 4; // 图片下载线程数
+    private static final HostScheduler scheduler = new HostScheduler(IMAGE_DELAY_MS, IMAGE_DELAY_JITTER_MS);
+    private static final AtomicInteger successCount = new AtomicInteger();
+    private static ImageStore imageStore; // 按内容寻址的图片存储，src 与 data-src 指向同一图片时只保存一份
 
     public static void main(String[] args) {
         try {
             System.out.println("开始爬取网页：" + TARGET_URL);
-            Document document = Jsoup.connect(TARGET_URL)
+            HttpCache.Page page = HttpCache.shared().fetch(Jsoup.connect(TARGET_URL)
                     .userAgent(getRandomUserAgent())
                     .header("Referer", "https://www.nipic.com/")
-                    .timeout(15000)
-                    .get();
+                    .timeout(15000));
 
-            // 保存HTML源码
-            String htmlFileName = "page_source_" + UUID.randomUUID() + ".txt";
-            saveHtmlToFile(document.html(), htmlFileName);
-            System.out.println("网页源码已保存至: " + SAVE_DIR + htmlFileName);
+            // 归档原始响应
+            archivePage(page);
 
             // 初始化图片统计
             imageStats.put("jpg", 0);
             imageStats.put("jpeg", 0);
             imageStats.put("png", 0);
-            int successCount = 0;
-
-            // 查找所有图片容器
-            Elements imageContainers = document.select("li");
-            System.out.println("找到图片容器数量：" + imageContainers.size());
-
-            for (Element container : imageContainers) {
-                Element imgElement = container.selectFirst("img");
-                if (imgElement == null) continue;
-
-                // 获取所有可能的图片URL
-                Set<String> imgUrls = new HashSet<>();
-                String dataSrc = imgElement.attr("data-src");
-                String src = imgElement.attr("src");
-                
-                if (!dataSrc.isEmpty()) imgUrls.add(dataSrc);
-                if (!src.isEmpty()) imgUrls.add(src);
-                
-                if (imgUrls.isEmpty()) {
-                    System.out.println("跳过：未找到有效的图片链接");
-                    continue;
-                }
-                
-                // 处理所有找到的图片URL
-                for (String imgUrl : imgUrls) {
-                    System.out.println("发现图片链接：" + imgUrl);
-                    String imgUrlLower = imgUrl.toLowerCase();
-                    String extension = null;
-
-                    if (imgUrlLower.endsWith(".jpg") || imgUrlLower.endsWith(".jpeg") || imgUrlLower.endsWith(".png")) {
-                        if (imgUrlLower.endsWith(".jpg")) {
-                            extension = ".jpg";
-                            imageStats.put("jpg", imageStats.get("jpg") + 1);
-                        } else if (imgUrlLower.endsWith(".jpeg")) {
-                            extension = ".jpeg";
-                            imageStats.put("jpeg", imageStats.get("jpeg") + 1);
-                        } else {
-                            extension = ".png";
-                            imageStats.put("png", imageStats.get("png") + 1);
-                        }
-                    } else {
-                        System.out.println("跳过不支持的图片格式：" + imgUrl);
-                        continue;
-                    }
-
-                    // 处理URL格式
-                    imgUrl = processImageUrl(imgUrl);
-                    if (imgUrl == null || imgUrl.contains("grey.gif")) {
-                        System.out.println("跳过无效图片URL: " + imgUrl);
-                        continue;
-                    }
-
-                    System.out.println("正在下载" + extension.substring(1) + "图片：" + imgUrl);
-                    try {
-                        downloadImage(imgUrl, extension);
-                        successCount++;
-                    } catch (IOException e) {
-                        System.err.println("下载图片失败：" + imgUrl + "，错误信息：" + e.getMessage());
-                    }
-                    
-                    // 反爬延迟
-                    Thread.sleep(50 + random.nextInt(100));
-                }
+            imageStore = new ImageStore(Paths.get(SAVE_DIR + "images"));
+            scheduler.startWorkers("image", IMAGE_WORKERS, EnhancedImageCrawler::downloadScheduledImage);
+
+            // 流式扫描每个图片容器（li）中的第一张图片，不构建 DOM
+            ContainerImages images = new ContainerImages(page.url());
+            try (Reader reader = LinkScanner.reader(new ByteArrayInputStream(page.body()), page.charset())) {
+                LinkScanner.scan(reader, images);
             }
+            System.out.println("找到含图片的容器数量：" + images.containerCount);
+
+            // 等待下载线程处理完所有图片（同一主机保持请求间隔，不同主机并行）
+            scheduler.close();
+            imageStore.close();
 
             // 输出统计信息
-            System.out.println("爬取完成！成功下载" + successCount + "张图片");
+            System.out.println("爬取完成！成功下载" + successCount.get() + "张图片");
             System.out.println("图片统计信息：");
             System.out.println("- JPG图片：" + imageStats.get("jpg") + "张");
             System.out.println("- JPEG图片：" + imageStats.get("jpeg") + "张");
             System.out.println("- PNG图片：" + imageStats.get("png") + "张");
-            System.out.println("页面图片容器总数：" + imageContainers.size());
+            System.out.println("页面含图片的容器总数：" + images.containerCount);
+            System.out.println("图片存储：" + imageStore.stats());
+            System.out.println("HTTP缓存：" + HttpCache.shared().stats());
 
         } catch (IOException | InterruptedException e) {
             System.err.println("[错误] 程序运行异常: " + e.getMessage());
@@ -137,48 +88,111 @@ public class EnhancedImageCrawler {
 
   
     
+    // 页面扫描回调：每个 li 中的第一张图片加入下载队列
+    private static class ContainerImages implements LinkScanner.Listener {
+        private final String pageUrl;
+        private int containerCount = 0;
+
+        ContainerImages(String pageUrl) {
+            this.pageUrl = pageUrl;
+        }
+
+        @Override
+        public void onLink(String href, String text, int depth, boolean hasImage) {
+            // 只下载图片，不跟进链接
+        }
+
+        @Override
+        public void onListItemImage(String src, String dataSrc) {
+            containerCount++;
+            // 获取所有可能的图片URL（按页面地址解析并规范化，src 与 data-src 相同时只保留一个）
+            Set<String> imgUrls = new HashSet<>();
+            String resolvedDataSrc = dataSrc != null ? UrlCanonicalizer.resolve(pageUrl, dataSrc) : null;
+            String resolvedSrc = src != null ? UrlCanonicalizer.resolve(pageUrl, src) : null;
+
+            if (resolvedDataSrc != null) imgUrls.add(resolvedDataSrc);
+            if (resolvedSrc != null) imgUrls.add(resolvedSrc);
+
+            if (imgUrls.isEmpty()) {
+                System.out.println("跳过：未找到有效的图片链接");
+                return;
+            }
+
+            // 处理所有找到的图片URL
+            for (String imgUrl : imgUrls) {
+                queueImage(imgUrl);
+            }
+        }
+    }
+
     /**
-     * 保存网页源码到文本文件
+     * 按扩展名统计图片并加入下载队列，不支持的格式跳过
      */
-    private static void saveHtmlToFile(String htmlContent, String fileName) throws IOException {
-        File saveDir = new File(SAVE_DIR);
-        if (!saveDir.exists()) saveDir.mkdirs();
-        
-        File outputFile = new File(SAVE_DIR + fileName);
-        FileUtils.writeStringToFile(outputFile, htmlContent, StandardCharsets.UTF_8);
+    private static void queueImage(String imgUrl) {
+        System.out.println("发现图片链接：" + imgUrl);
+        String imgUrlLower = imgUrl.toLowerCase();
+        String extension;
+
+        if (imgUrlLower.endsWith(".jpg") || imgUrlLower.endsWith(".jpeg") || imgUrlLower.endsWith(".png")) {
+            if (imgUrlLower.endsWith(".jpg")) {
+                extension = ".jpg";
+                imageStats.put("jpg", imageStats.get("jpg") + 1);
+            } else if (imgUrlLower.endsWith(".jpeg")) {
+                extension = ".jpeg";
+                imageStats.put("jpeg", imageStats.get("jpeg") + 1);
+            } else {
+                extension = ".png";
+                imageStats.put("png", imageStats.get("png") + 1);
+            }
+        } else {
+            System.out.println("跳过不支持的图片格式：" + imgUrl);
+            return;
+        }
+
+        if (imgUrl.contains("grey.gif")) {
+            System.out.println("跳过无效图片URL: " + imgUrl);
+            return;
+        }
+
+        System.out.println("加入下载队列" + extension.substring(1) + "图片：" + imgUrl);
+        scheduler.submit(imgUrl);
     }
 
     /**
-     * 处理图片URL格式
+     * 把原始响应追加到分段压缩的页面归档
      */
-    private static String processImageUrl(String imgUrl) {
-        if (imgUrl.startsWith("//")) {
-            return "https:" + imgUrl;
-        } else if (imgUrl.startsWith("/")) {
-            return "https://www.nipic.com" + imgUrl;
-        } else if (!imgUrl.startsWith("http")) {
-            return "https://" + imgUrl;
+    private static void archivePage(HttpCache.Page page) throws IOException {
+        try (PageArchive archive = new PageArchive(Paths.get(SAVE_DIR + "pages"))) {
+            if (page.fromCache() && archive.contains(page.url())) return;
+            archive.append(page.url(), page.headers(), System.currentTimeMillis(), page.body());
+        }
+        System.out.println("网页源码已归档至: " + SAVE_DIR + "pages");
+    }
+
+    /**
+     * 下载线程处理调度器交出的图片URL
+     */
+    private static void downloadScheduledImage(String imgUrl) {
+        String extension = imgUrl.substring(imgUrl.lastIndexOf('.')).toLowerCase();
+        System.out.println("正在下载" + extension.substring(1) + "图片：" + imgUrl);
+        try {
+            downloadImage(imgUrl, extension);
+            successCount.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("下载图片失败：" + imgUrl + "，错误信息：" + e.getMessage());
         }
-        return imgUrl;
     }
 
     /**
      * 下载图片到本地
      */
     private static void downloadImage(String imgUrl, String extension) throws IOException {
-        Connection.Response response = Jsoup.connect(imgUrl)
+        Connection conn = Jsoup.connect(imgUrl)
                 .userAgent(getRandomUserAgent())
-                .ignoreContentType(true)
-                .timeout(5000)
-                .execute();
-
-        String fileName = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(10);
-        File outputFile = new File(SAVE_DIR + fileName + extension);
-        FileUtils.copyInputStreamToFile(
-            new ByteArrayInputStream(response.bodyAsBytes()),
-            outputFile
-        );
-        System.out.println("成功下载图片：" + outputFile.getAbsolutePath());
+                .timeout(5000);
+
+        Path saved = imageStore.store(imgUrl, conn, extension, StreamingDownloader.DEFAULT_MAX_BYTES, 1);
+        System.out.println("成功下载图片：" + saved.toAbsolutePath());
     }
 
     /**
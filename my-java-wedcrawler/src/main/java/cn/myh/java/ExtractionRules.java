@@ -0,0 +1,226 @@
+package cn.myh.java;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.QueryParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的页面抽取规则
+ * 规则集构建时解析一次 CSS 选择器，抽取时直接用解析好的选择器匹配；
+ * "标签: 值" 形式的信息块（如豆瓣详情页的 #info）按 &lt;br&gt; 分行只遍历一遍，一次取出所有需要的字段，
+ * 新增字段不会增加遍历次数。规则集构建后只读，可在多个线程间共用。
+ */
+public final class ExtractionRules {
+    private static final int TEXT = 0;  // 第一个匹配元素的文本
+    private static final int ATTR = 1;  // 第一个匹配元素的属性
+    private static final int JOIN = 2;  // 全部匹配元素的文本，按分隔符连接
+
+    // 一条选择器规则
+    private static final class Rule {
+        final int field;
+        final int kind;
+        final Evaluator selector;
+        final String arg; // ATTR 为属性名，JOIN 为分隔符
+
+        Rule(int field, int kind, Evaluator selector, String arg) {
+            this.field = field;
+            this.kind = kind;
+            this.selector = selector;
+            this.arg = arg;
+        }
+    }
+
+    private final Map<String, Integer> fields;       // 字段名 -> 下标
+    private final List<Rule> rules;
+    private final Evaluator labelBlock;               // 信息块，没有标签字段时为 null
+    private final Map<String, Integer> labels;        // 信息块中的标签 -> 字段下标
+
+    private ExtractionRules(Builder b) {
+        this.fields = new HashMap<>(b.fields);
+        this.rules = new ArrayList<>(b.rules);
+        this.labelBlock = b.labelBlock;
+        this.labels = new HashMap<>(b.labels);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 预先解析选择器，供规则之外的 select 复用
+     */
+    public static Evaluator selector(String css) {
+        return QueryParser.parse(css);
+    }
+
+    /**
+     * 对 root 下的内容执行全部规则
+     */
+    public Result apply(Element root) {
+        String[] values = new String[fields.size()];
+        for (Rule rule : rules) {
+            if (rule.kind == JOIN) {
+                Elements matches = root.select(rule.selector);
+                if (!matches.isEmpty()) {
+                    StringBuilder joined = new StringBuilder();
+                    for (Element e : matches) {
+                        if (joined.length() > 0) joined.append(rule.arg);
+                        joined.append(e.text());
+                    }
+                    values[rule.field] = joined.toString();
+                }
+            } else {
+                Element match = root.selectFirst(rule.selector);
+                if (match != null) {
+                    values[rule.field] = rule.kind == TEXT ? match.text() : match.attr(rule.arg);
+                }
+            }
+        }
+        if (labelBlock != null) {
+            Element block = root.selectFirst(labelBlock);
+            if (block != null) {
+                scanLabels(block, values);
+            }
+        }
+        return new Result(fields, values);
+    }
+
+    // 按 <br> 分行遍历一次信息块，"标签: 值" 中标签是关心的字段时记录值
+    private void scanLabels(Element block, String[] values) {
+        StringBuilder line = new StringBuilder();
+        NodeTraversor.traverse((Node node, int depth) -> {
+            if (node instanceof TextNode) {
+                line.append(((TextNode) node).getWholeText());
+            } else if (node instanceof Element && ((Element) node).nameIs("br")) {
+                takeLabel(line, values);
+                line.setLength(0);
+            }
+        }, block);
+        takeLabel(line, values);
+    }
+
+    private void takeLabel(CharSequence line, String[] values) {
+        String text = line.toString();
+        int colon = indexOfColon(text);
+        if (colon < 0) return;
+        Integer field = labels.get(text.substring(0, colon).trim());
+        if (field != null && values[field] == null) {
+            values[field] = text.substring(colon + 1).trim().replaceAll("\\s+", " ");
+        }
+    }
+
+    private static int indexOfColon(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ':' || c == '：') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 规则集构建器
+     */
+    public static final class Builder {
+        private final Map<String, Integer> fields = new LinkedHashMap<>();
+        private final List<Rule> rules = new ArrayList<>();
+        private final Map<String, Integer> labels = new HashMap<>();
+        private Evaluator labelBlock;
+
+        private Builder() {}
+
+        /** 第一个匹配元素的文本 */
+        public Builder text(String field, String css) {
+            rules.add(new Rule(field(field), TEXT, selector(css), null));
+            return this;
+        }
+
+        /** 第一个匹配元素的属性值 */
+        public Builder attr(String field, String css, String attrName) {
+            rules.add(new Rule(field(field), ATTR, selector(css), attrName));
+            return this;
+        }
+
+        /** 全部匹配元素的文本，用 separator 连接 */
+        public Builder joinText(String field, String css, String separator) {
+            rules.add(new Rule(field(field), JOIN, selector(css), separator));
+            return this;
+        }
+
+        /** 指定 "标签: 值" 信息块所在的元素 */
+        public Builder labelBlock(String css) {
+            labelBlock = selector(css);
+            return this;
+        }
+
+        /** 信息块中某个标签（不含冒号）的值 */
+        public Builder label(String field, String label) {
+            labels.put(label, field(field));
+            return this;
+        }
+
+        public ExtractionRules build() {
+            if (!labels.isEmpty() && labelBlock == null) {
+                throw new IllegalStateException("使用标签字段前需要指定信息块");
+            }
+            return new ExtractionRules(this);
+        }
+
+        private int field(String name) {
+            if (fields.containsKey(name)) {
+                throw new IllegalArgumentException("字段重复定义: " + name);
+            }
+            fields.put(name, fields.size());
+            return fields.get(name);
+        }
+    }
+
+    /**
+     * 一次抽取的结果，未匹配的字段为 null
+     */
+    public static final class Result {
+        private final Map<String, Integer> fields;
+        private final String[] values;
+
+        private Result(Map<String, Integer> fields, String[] values) {
+            this.fields = fields;
+            this.values = values;
+        }
+
+        public String get(String field) {
+            Integer index = fields.get(field);
+            if (index == null) {
+                throw new IllegalArgumentException("未定义的字段: " + field);
+            }
+            return values[index];
+        }
+
+        public String get(String field, String defaultValue) {
+            String value = get(field);
+            return value != null ? value : defaultValue;
+        }
+
+        /** 按小数解析，未匹配时返回默认值 */
+        public double getDouble(String field, double defaultValue) {
+            String value = get(field);
+            return value != null && !value.isEmpty() ? Double.parseDouble(value.trim()) : defaultValue;
+        }
+
+        /** 去掉非数字字符后按整数解析（如 "123456人评价"），未匹配时返回默认值 */
+        public int getInt(String field, int defaultValue) {
+            String value = get(field);
+            if (value == null) return defaultValue;
+            String digits = value.replaceAll("\\D+", "");
+            return digits.isEmpty() ? defaultValue : Integer.parseInt(digits);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package cn.myh.java;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * 紧凑的已访问URL集合
+ * 只保存 URL 的 64 位指纹，存放在堆外的开放寻址 long 表中（每个 URL 约 8~16 字节），
+ * 可选地在前面加一层布隆过滤器，未命中时直接判定为新 URL，省去一次表探测。
+ * 指纹表达到内存上限后不再扩容：启用布隆过滤器时新 URL 只记入过滤器（结果变为近似，误判率受配置约束），
+ * 未启用时抛出 IllegalStateException。
+ */
+public class FingerprintVisitedStore implements VisitedStore {
+    private static final long EMPTY = 0L;        // 空槽标记，指纹为 0 时改记为 1
+    private static final double MAX_LOAD = 0.7;  // 扩容阈值
+    private static final int MIN_CAPACITY = 1 << 10;
+    // 单个 ByteBuffer 最多 Integer.MAX_VALUE 字节，容量为 2 的幂时最大只能是 1 << 27 个槽（1GB）
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private final long maxTableBytes;
+    private final BloomFilter bloom;
+    private LongBuffer table;
+    private int capacity;
+    private long tableSize = 0;
+    private long bloomOnlySize = 0; // 内存上限后仅记入布隆过滤器的数量
+    private boolean saturated = false;
+
+    /**
+     * @param expectedUrls      预期 URL 数量，用于确定布隆过滤器大小和初始表容量
+     * @param falsePositiveRate 布隆过滤器误判率，<= 0 表示不启用布隆过滤器
+     * @param maxBytes          指纹表与布隆过滤器合计的内存上限（字节）
+     */
+    public FingerprintVisitedStore(long expectedUrls, double falsePositiveRate, long maxBytes) {
+        long bloomBytes = 0;
+        if (falsePositiveRate > 0) {
+            bloomBytes = BloomFilter.estimateBytes(expectedUrls, falsePositiveRate);
+            if (bloomBytes >= maxBytes) {
+                throw new IllegalArgumentException("内存上限不足以容纳布隆过滤器: 需要 " + bloomBytes + " 字节");
+            }
+            this.bloom = new BloomFilter(expectedUrls, falsePositiveRate);
+        } else {
+            this.bloom = null;
+        }
+        this.maxTableBytes = maxBytes - bloomBytes;
+        this.capacity = tableCapacityFor(Math.min(expectedUrls, 1 << 16));
+        this.table = allocate(capacity);
+    }
+
+    /**
+     * 使用系统属性构造：visited.expected（默认 100 万）、visited.fpp（默认 0.01）、visited.maxBytes（默认 64MB）
+     */
+    public static FingerprintVisitedStore withDefaults() {
+        long expected = Long.getLong("visited.expected", 1_000_000L);
+        double fpp = Double.parseDouble(System.getProperty("visited.fpp", "0.01"));
+        long maxBytes = Long.getLong("visited.maxBytes", 64L * 1024 * 1024);
+        return new FingerprintVisitedStore(expected, fpp, maxBytes);
+    }
+
+    /** URL 转为表中使用的指纹；传入的已是规范化 URL，直接计算不再重复解析 */
+    protected long fingerprint(String url) {
+        return UrlCanonicalizer.fingerprintCanonical(url);
+    }
+
+    @Override
+    public synchronized boolean add(String url) {
+        long fp = fingerprint(url);
+        if (bloom != null && !bloom.mightContain(fp)) {
+            // 布隆过滤器未命中：一定是新 URL，无需探测指纹表
+            bloom.put(fp);
+            insert(fp);
+            return true;
+        }
+        if (probe(fp)) {
+            return false;
+        }
+        if (saturated) {
+            // 已达内存上限，且布隆过滤器判定存在：按已访问处理（近似）
+            return false;
+        }
+        if (bloom != null) bloom.put(fp);
+        insert(fp);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean contains(String url) {
+        long fp = fingerprint(url);
+        if (bloom != null && !bloom.mightContain(fp)) {
+            return false;
+        }
+        return probe(fp) || saturated;
+    }
+
+    @Override
+    public synchronized long size() {
+        return tableSize + bloomOnlySize;
+    }
+
+    /** 是否已达内存上限、结果变为近似 */
+    public synchronized boolean isApproximate() {
+        return saturated;
+    }
+
+    /** 当前占用的内存（字节） */
+    public synchronized long memoryBytes() {
+        return (long) capacity * Long.BYTES + (bloom != null ? bloom.sizeInBytes() : 0);
+    }
+
+    private boolean probe(long fp) {
+        long key = fp == EMPTY ? 1 : fp;
+        int mask = capacity - 1;
+        for (int i = (int) Fingerprints.mix64(key) & mask; ; i = (i + 1) & mask) {
+            long slot = table.get(i);
+            if (slot == EMPTY) return false;
+            if (slot == key) return true;
+        }
+    }
+
+    private void insert(long fp) {
+        if (saturated) {
+            bloomOnlySize++;
+            return;
+        }
+        if (tableSize + 1 > capacity * MAX_LOAD && !grow()) {
+            if (bloom == null) {
+                throw new IllegalStateException("已访问URL指纹表达到内存上限: " + maxTableBytes + " 字节");
+            }
+            saturated = true;
+            System.err.println("[WARN] 已访问URL指纹表达到内存上限，后续URL仅记入布隆过滤器");
+            bloomOnlySize++;
+            return;
+        }
+        long key = fp == EMPTY ? 1 : fp;
+        int mask = capacity - 1;
+        int i = (int) Fingerprints.mix64(key) & mask;
+        while (table.get(i) != EMPTY) {
+            if (table.get(i) == key) return;
+            i = (i + 1) & mask;
+        }
+        table.put(i, key);
+        tableSize++;
+    }
+
+    private boolean grow() {
+        long newCapacity = (long) capacity << 1;
+        if (newCapacity > MAX_CAPACITY || newCapacity * Long.BYTES > maxTableBytes) {
+            return false;
+        }
+        LongBuffer old = table;
+        int oldCapacity = capacity;
+        capacity = (int) newCapacity;
+        table = allocate(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldCapacity; j++) {
+            long key = old.get(j);
+            if (key == EMPTY) continue;
+            int i = (int) Fingerprints.mix64(key) & mask;
+            while (table.get(i) != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table.put(i, key);
+        }
+        return true;
+    }
+
+    private int tableCapacityFor(long items) {
+        long needed = (long) Math.ceil(Math.max(1, items) / MAX_LOAD);
+        int cap = MIN_CAPACITY;
+        while (cap < needed && cap < MAX_CAPACITY) {
+            cap <<= 1;
+        }
+        while ((long) cap * Long.BYTES > maxTableBytes && cap > MIN_CAPACITY) {
+            cap >>= 1;
+        }
+        return cap;
+    }
+
+    private static LongBuffer allocate(int capacity) {
+        long bytes = (long) capacity * Long.BYTES;
+        return ByteBuffer.allocateDirect(Math.toIntExact(bytes)).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+}
@@ -0,0 +1,45 @@
+package cn.myh.java;
+
+/**
+ * 64 位指纹工具
+ */
+public final class Fingerprints {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Fingerprints() {}
+
+    /**
+     * 计算字符序列的 64 位指纹（FNV-1a 累加后做 murmur3 末尾混合），结果跨进程稳定
+     */
+    public static long fp64(CharSequence text) {
+        return fp64(text, 0, text.length());
+    }
+
+    /**
+     * 计算 text[start, end) 的指纹，与对该子串调用 fp64(CharSequence) 结果相同，不生成子串
+     */
+    public static long fp64(CharSequence text, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            hash ^= c & 0xff;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * murmur3 fmix64，打散低质量的哈希位
+     */
+    public static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,26 @@
+package cn.myh.java;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于堆内字符串集合的已访问URL集合，适合小规模抓取或需要精确原文的场景
+ */
+public class HeapVisitedStore implements VisitedStore {
+    private final Set<String> urls = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean add(String url) {
+        return urls.add(url);
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return urls.contains(url);
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+}
@@ -0,0 +1,169 @@
+package cn.myh.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * 按主机的礼貌调度器
+ * 为每个主机记录下一次允许请求的时间，只把已到期主机的 URL 交给工作线程；
+ * 同一主机仍保持原有间隔，不同主机（如图片 CDN 与 HTML 站点）可以并行抓取。
+ */
+public class HostScheduler {
+    private final long defaultDelayMs;
+    private final int defaultJitterMs;
+    private final Map<String, HostState> hosts = new HashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Random random = new Random();
+    private int pending = 0;
+    private boolean closed = false;
+
+    // 单个主机的调度状态
+    private static class HostState {
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        long delayMs;
+        int jitterMs;
+        long nextAllowedAt = 0;
+
+        HostState(long delayMs, int jitterMs) {
+            this.delayMs = delayMs;
+            this.jitterMs = jitterMs;
+        }
+    }
+
+    /**
+     * @param defaultDelayMs  同一主机两次请求的基础间隔
+     * @param defaultJitterMs 在基础间隔上追加的随机抖动上限（0 表示不抖动）
+     */
+    public HostScheduler(long defaultDelayMs, int defaultJitterMs) {
+        this.defaultDelayMs = defaultDelayMs;
+        this.defaultJitterMs = defaultJitterMs;
+    }
+
+    /**
+     * 为指定主机单独设置请求间隔
+     */
+    public synchronized void setHostDelay(String host, long delayMs, int jitterMs) {
+        HostState state = stateOf(host.toLowerCase(Locale.ROOT));
+        state.delayMs = delayMs;
+        state.jitterMs = jitterMs;
+    }
+
+    /**
+     * 提交一个待抓取 URL，由 take() 在其主机到期时取出
+     */
+    public synchronized void submit(String url) {
+        if (closed) {
+            throw new IllegalStateException("调度器已关闭");
+        }
+        stateOf(hostOf(url)).queue.addLast(url);
+        pending++;
+        notifyAll();
+    }
+
+    /**
+     * 取出一个主机已到期的 URL 并占用该主机的下一个时间片；
+     * 暂无可用 URL 时阻塞，调度器关闭且队列清空后返回 null
+     */
+    public synchronized String take() throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            HostState earliest = null;
+            for (HostState state : hosts.values()) {
+                if (!state.queue.isEmpty() && (earliest == null || state.nextAllowedAt < earliest.nextAllowedAt)) {
+                    earliest = state;
+                }
+            }
+            if (earliest == null) {
+                if (closed) return null;
+                wait();
+            } else if (earliest.nextAllowedAt <= now) {
+                earliest.nextAllowedAt = now + nextDelay(earliest);
+                pending--;
+                return earliest.queue.pollFirst();
+            } else {
+                wait(earliest.nextAllowedAt - now);
+            }
+        }
+    }
+
+    /**
+     * 顺序抓取时使用：阻塞到该 URL 所在主机允许请求为止，并占用其时间片
+     */
+    public void acquire(String url) throws InterruptedException {
+        long waitMs;
+        synchronized (this) {
+            HostState state = stateOf(hostOf(url));
+            long now = System.currentTimeMillis();
+            long slot = Math.max(now, state.nextAllowedAt);
+            state.nextAllowedAt = slot + nextDelay(state);
+            waitMs = slot - now;
+        }
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+
+    /**
+     * 启动若干工作线程，循环 take() 并交给 handler 处理，直到 close()
+     */
+    public synchronized void startWorkers(String name, int count, Consumer<String> handler) {
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    String url;
+                    while ((url = take()) != null) {
+                        // 单个 URL 处理失败不能结束工作线程，否则该线程负责的 URL 无人处理，close() 也无法返回
+                        try {
+                            handler.accept(url);
+                        } catch (RuntimeException e) {
+                            System.err.println("处理失败：" + url + "，错误：" + e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, name + "-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * 停止接收新 URL，等待已提交的 URL 全部处理完并回收工作线程
+     */
+    public void close() throws InterruptedException {
+        List<Thread> running;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            running = new ArrayList<>(workers);
+            workers.clear();
+        }
+        for (Thread worker : running) {
+            worker.join();
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending;
+    }
+
+    private HostState stateOf(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostState(defaultDelayMs, defaultJitterMs));
+    }
+
+    private long nextDelay(HostState state) {
+        return state.delayMs + (state.jitterMs > 0 ? random.nextInt(state.jitterMs) : 0);
+    }
+
+    static String hostOf(String url) {
+        return UrlCanonicalizer.host(url); // 非法URL统一归入空主机
+    }
+}
@@ -0,0 +1,349 @@
+package cn.myh.java;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 流式 HTML 属性扫描器
+ * 逐字符扫描输入流中的标签，只为关心的 "标签-属性" 组合生成字符串并回调，
+ * 不构建 DOM、不按行切分字符串，同一行里的多个链接都能取到。
+ * 注释、script/style 内容会被跳过。
+ */
+public class HtmlAttributeScanner {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** 扫描回调 */
+    public interface Listener {
+        void onAttribute(String tagName, String attrName, String value);
+    }
+
+    /**
+     * 标签级回调，按文档顺序触发，调用方可据此自行维护元素嵌套等上下文
+     */
+    public interface TagHandler {
+        /**
+         * 开始标签
+         * @param attrs 只包含构造时指定的属性（按出现顺序），不关心的标签为空
+         */
+        void onStartTag(String tagName, Map<String, String> attrs, boolean selfClosing);
+
+        /** 结束标签，包括 script/style 的结束 */
+        default void onEndTag(String tagName) {}
+
+        /** 标签之间的文本片段（实体未解码），同一段文本可能被缓冲区边界分成多次回调 */
+        default void onText(char[] buf, int start, int length) {}
+    }
+
+    private final Map<String, Set<String>> wanted = new HashMap<>();
+
+    /**
+     * @param tagAndAttrs 成对出现的标签名与属性名，如 ("a", "href", "img", "src")
+     */
+    public HtmlAttributeScanner(String... tagAndAttrs) {
+        if (tagAndAttrs.length % 2 != 0) {
+            throw new IllegalArgumentException("标签名与属性名必须成对出现");
+        }
+        for (int i = 0; i < tagAndAttrs.length; i += 2) {
+            wanted.computeIfAbsent(tagAndAttrs[i].toLowerCase(Locale.ROOT), k -> new HashSet<>())
+                    .add(tagAndAttrs[i + 1].toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * 扫描整个输入流，逐个回调关心的属性，调用方负责关闭 reader
+     */
+    public void scan(Reader reader, Listener listener) throws IOException {
+        scanTags(reader, (tag, attrs, selfClosing) -> attrs.forEach((name, value) -> listener.onAttribute(tag, name, value)));
+    }
+
+    /**
+     * 扫描整个输入流，按标签回调，调用方负责关闭 reader
+     */
+    public void scanTags(Reader reader, TagHandler handler) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(handler);
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            tokenizer.feed(buffer, n);
+        }
+    }
+
+    // 扫描状态
+    private static final int TEXT = 0;
+    private static final int TAG_OPEN = 1;          // 刚读到 '<'
+    private static final int TAG_NAME = 2;
+    private static final int BEFORE_ATTR = 3;
+    private static final int ATTR_NAME = 4;
+    private static final int AFTER_ATTR_NAME = 5;
+    private static final int BEFORE_VALUE = 6;
+    private static final int VALUE_QUOTED = 7;
+    private static final int VALUE_UNQUOTED = 8;
+    private static final int SKIP_TAG = 9;          // <!DOCTYPE>、<?xml?>、结束标签名之后的内容等，跳到 '>'
+    private static final int COMMENT = 10;
+    private static final int RAW_TEXT = 11;         // script/style 内容
+    private static final int END_TAG_NAME = 12;
+
+    // 一次扫描的状态，输入可分多次送入
+    private final class Tokenizer {
+        private final TagHandler handler;
+        private final StringBuilder tagName = new StringBuilder(16);
+        private final StringBuilder attrName = new StringBuilder(16);
+        private final StringBuilder value = new StringBuilder(128);
+        private Set<String> tagAttrs;   // 当前标签关心的属性，null 表示不关心
+        private Map<String, String> attrs;
+        private String currentTag;
+        private boolean selfClosing;
+        private String rawEnd;          // RAW_TEXT 状态下等待的结束标签，如 "</script"
+        private int rawMatched;
+        private int commentDashes;
+        private int commentPrefix;      // 已匹配的 "!--" 前缀长度
+        private char quote;
+        private int textStart = -1;     // 当前缓冲区中未回调文本的起点
+        private int state = TEXT;
+
+        Tokenizer(TagHandler handler) {
+            this.handler = handler;
+        }
+
+        void feed(char[] buffer, int n) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                switch (state) {
+                    case TEXT:
+                        if (c == '<') {
+                            flushText(buffer, i);
+                            state = TAG_OPEN;
+                        } else if (textStart < 0) {
+                            textStart = i;
+                        }
+                        break;
+                    case TAG_OPEN:
+                        if (c == '!') {
+                            commentPrefix = 1;
+                            state = SKIP_TAG;
+                        } else if (c == '/') {
+                            tagName.setLength(0);
+                            state = END_TAG_NAME;
+                        } else if (c == '?') {
+                            commentPrefix = 0;
+                            state = SKIP_TAG;
+                        } else if (isLetter(c)) {
+                            tagName.setLength(0);
+                            tagName.append(lower(c));
+                            state = TAG_NAME;
+                        } else if (c != '<') {
+                            textStart = i;
+                            state = TEXT;
+                        }
+                        break;
+                    case TAG_NAME:
+                        if (isSpace(c) || c == '>' || c == '/') {
+                            beginTag();
+                            if (c == '>') {
+                                endStartTag();
+                            } else {
+                                selfClosing = c == '/';
+                                state = BEFORE_ATTR;
+                            }
+                        } else {
+                            tagName.append(lower(c));
+                        }
+                        break;
+                    case END_TAG_NAME:
+                        if (c == '>' || isSpace(c)) {
+                            if (tagName.length() > 0) {
+                                handler.onEndTag(tagName.toString());
+                            }
+                            commentPrefix = 0;
+                            state = c == '>' ? TEXT : SKIP_TAG;
+                        } else {
+                            tagName.append(lower(c));
+                        }
+                        break;
+                    case BEFORE_ATTR:
+                        if (c == '>') {
+                            endStartTag();
+                        } else if (c == '/') {
+                            selfClosing = true;
+                        } else if (!isSpace(c)) {
+                            startAttr(c);
+                        }
+                        break;
+                    case ATTR_NAME:
+                        if (c == '=') {
+                            state = BEFORE_VALUE;
+                        } else if (isSpace(c)) {
+                            state = AFTER_ATTR_NAME;
+                        } else if (c == '>') {
+                            endStartTag();
+                        } else if (c == '/') {
+                            selfClosing = true;
+                            state = BEFORE_ATTR;
+                        } else {
+                            attrName.append(lower(c));
+                        }
+                        break;
+                    case AFTER_ATTR_NAME:
+                        if (c == '=') {
+                            state = BEFORE_VALUE;
+                        } else if (c == '>') {
+                            endStartTag();
+                        } else if (!isSpace(c)) {
+                            startAttr(c);
+                        }
+                        break;
+                    case BEFORE_VALUE:
+                        if (c == '"' || c == '\'') {
+                            quote = c;
+                            value.setLength(0);
+                            state = VALUE_QUOTED;
+                        } else if (c == '>') {
+                            endStartTag();
+                        } else if (!isSpace(c)) {
+                            value.setLength(0);
+                            value.append(c);
+                            state = VALUE_UNQUOTED;
+                        }
+                        break;
+                    case VALUE_QUOTED:
+                        if (c == quote) {
+                            endValue();
+                            state = BEFORE_ATTR;
+                        } else if (tagAttrs != null) {
+                            value.append(c);
+                        }
+                        break;
+                    case VALUE_UNQUOTED:
+                        if (isSpace(c) || c == '>') {
+                            endValue();
+                            if (c == '>') {
+                                endStartTag();
+                            } else {
+                                state = BEFORE_ATTR;
+                            }
+                        } else if (tagAttrs != null) {
+                            value.append(c);
+                        }
+                        break;
+                    case SKIP_TAG:
+                        if (commentPrefix > 0 && commentPrefix < 3) {
+                            if (c == '-') {
+                                commentPrefix++;
+                                if (commentPrefix == 3) {
+                                    commentDashes = 0;
+                                    state = COMMENT;
+                                }
+                                break;
+                            }
+                            commentPrefix = 0;
+                        }
+                        if (c == '>') state = TEXT;
+                        break;
+                    case COMMENT:
+                        if (c == '-') {
+                            commentDashes++;
+                        } else {
+                            if (c == '>' && commentDashes >= 2) state = TEXT;
+                            commentDashes = 0;
+                        }
+                        break;
+                    case RAW_TEXT:
+                        if (lower(c) == rawEnd.charAt(rawMatched)) {
+                            rawMatched++;
+                            if (rawMatched == rawEnd.length()) {
+                                handler.onEndTag(currentTag);
+                                commentPrefix = 0;
+                                state = SKIP_TAG;
+                            }
+                        } else {
+                            rawMatched = c == '<' ? 1 : 0;
+                        }
+                        break;
+                    default:
+                        state = TEXT;
+                }
+            }
+            if (state == TEXT) {
+                flushText(buffer, n);
+            }
+        }
+
+        private void beginTag() {
+            currentTag = tagName.toString();
+            tagAttrs = wanted.get(currentTag);
+            attrs = null;
+            selfClosing = false;
+        }
+
+        private void startAttr(char c) {
+            selfClosing = false;
+            attrName.setLength(0);
+            attrName.append(lower(c));
+            state = ATTR_NAME;
+        }
+
+        // 开始标签结束：回调，并决定后续按普通文本还是 script/style 原始内容扫描
+        private void endStartTag() {
+            handler.onStartTag(currentTag, attrs != null ? attrs : Collections.emptyMap(), selfClosing);
+            if (!selfClosing && ("script".equals(currentTag) || "style".equals(currentTag))) {
+                rawEnd = "</" + currentTag;
+                rawMatched = 0;
+                state = RAW_TEXT;
+            } else {
+                state = TEXT;
+            }
+        }
+
+        // 属性值结束：只保留关心的属性，同名属性以第一次出现为准
+        private void endValue() {
+            if (tagAttrs == null) {
+                return;
+            }
+            for (String wantedAttr : tagAttrs) {
+                if (wantedAttr.contentEquals(attrName)) {
+                    String v = value.toString().trim();
+                    if (!v.isEmpty()) {
+                        if (attrs == null) attrs = new LinkedHashMap<>(4);
+                        attrs.putIfAbsent(wantedAttr, v.indexOf('&') >= 0 ? decodeEntities(v) : v);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void flushText(char[] buffer, int end) {
+            if (textStart >= 0 && end > textStart) {
+                handler.onText(buffer, textStart, end - textStart);
+            }
+            textStart = -1;
+        }
+    }
+
+    // 属性值中常见的实体解码
+    private static String decodeEntities(String v) {
+        return v.replace("&amp;", "&")
+                .replace("&quot;", "\"")
+                .replace("&#39;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">");
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
@@ -0,0 +1,260 @@
+package cn.myh.java;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持久化 HTTP 条件请求缓存
+ * 按 URL 指纹保存响应体及其 ETag / Last-Modified，下次请求同一 URL 时带上 If-None-Match / If-Modified-Since，
+ * 服务器返回 304 时直接使用本地响应体。缓存跨运行保留，页面未变化的重复爬取几乎不消耗带宽。
+ * 没有任何校验头的响应、以及可能被 Jsoup maxBodySize 截断的响应不缓存。
+ */
+public class HttpCache {
+    private static final HttpCache SHARED = new HttpCache(Paths.get(System.getProperty("http.cacheDir", "./data/http-cache")));
+
+    private final Path dir;
+    private final AtomicLong hits = new AtomicLong();       // 304，使用本地响应体
+    private final AtomicLong misses = new AtomicLong();     // 200，完整下载
+    private final AtomicLong bytesSaved = new AtomicLong(); // 因 304 省下的响应体字节数
+
+    // 单个缓存条目
+    private static class Entry {
+        final String etag;
+        final String lastModified;
+        final String charset;
+        final Path body;
+
+        Entry(String etag, String lastModified, String charset, Path body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.charset = charset;
+            this.body = body;
+        }
+    }
+
+    public HttpCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /** 各爬虫共用的缓存，目录可通过 -Dhttp.cacheDir 指定 */
+    public static HttpCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 通过 HttpClient 发起条件请求并返回页面文本
+     * @param defaultCharset 响应未声明编码时使用的编码
+     * @throws IOException 请求失败或状态码既不是 200 也不是 304 时抛出
+     */
+    public String getString(CloseableHttpClient client, HttpGet request, String defaultCharset) throws IOException {
+        String url = request.getURI().toString();
+        Entry cached = lookup(url);
+        if (cached != null) {
+            if (cached.etag != null) request.setHeader("If-None-Match", cached.etag);
+            if (cached.lastModified != null) request.setHeader("If-Modified-Since", cached.lastModified);
+        }
+
+        try (CloseableHttpResponse response = client.execute(request)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == 304 && cached != null) {
+                EntityUtils.consume(response.getEntity());
+                return new String(readHit(cached), charsetOf(cached.charset, defaultCharset));
+            }
+            if (status != 200) {
+                EntityUtils.consume(response.getEntity()); // 读完响应体，连接可继续复用
+                throw new IOException("HTTP状态码异常: " + status);
+            }
+            HttpEntity entity = response.getEntity();
+            byte[] body = EntityUtils.toByteArray(entity);
+            Charset declared = ContentType.getOrDefault(entity).getCharset();
+            String charset = declared != null ? declared.name() : defaultCharset;
+            misses.incrementAndGet();
+            save(url, headerValue(response.getFirstHeader("ETag")),
+                    headerValue(response.getFirstHeader("Last-Modified")), charset, body);
+            return new String(body, charsetOf(charset, defaultCharset));
+        }
+    }
+
+    /**
+     * 通过 Jsoup 发起条件请求并解析为文档
+     * @throws IOException 请求失败或状态码既不是 200 也不是 304 时抛出
+     */
+    public Document getDocument(Connection conn) throws IOException {
+        return fetch(conn).parse();
+    }
+
+    /**
+     * 通过 Jsoup 发起条件请求，返回原始响应（304 时响应体取自缓存）
+     * 条件请求头和 ignoreHttpErrors 设置在复制出的请求上，调用方的 Connection 不受影响。
+     * @throws IOException 请求失败或状态码既不是 200 也不是 304 时抛出
+     */
+    public Page fetch(Connection conn) throws IOException {
+        String url = conn.request().url().toString();
+        Connection request = conn.newRequest().ignoreHttpErrors(true); // 复制超时、请求头等设置，共享 Cookie
+        Entry cached = lookup(url);
+        if (cached != null) {
+            if (cached.etag != null) request.header("If-None-Match", cached.etag);
+            if (cached.lastModified != null) request.header("If-Modified-Since", cached.lastModified);
+        }
+
+        Connection.Response response = request.execute();
+        int status = response.statusCode();
+        if (status == 304 && cached != null) {
+            return new Page(url, response.headers(), cached.charset, readHit(cached), true);
+        }
+        if (status != 200) {
+            throw new HttpStatusException("HTTP状态码异常", status, url);
+        }
+        byte[] body = response.bodyAsBytes();
+        misses.incrementAndGet();
+        // 响应体达到 maxBodySize 时可能已被截断，不能当作完整内容缓存
+        int maxBodySize = conn.request().maxBodySize();
+        if (maxBodySize <= 0 || body.length < maxBodySize) {
+            save(url, response.header("ETag"), response.header("Last-Modified"), response.charset(), body);
+        }
+        return new Page(url, response.headers(), response.charset(), body, false);
+    }
+
+    /**
+     * 一次请求得到的原始页面
+     */
+    public static final class Page {
+        private final String url;
+        private final Map<String, String> headers;
+        private final String charset;
+        private final byte[] body;
+        private final boolean fromCache;
+
+        Page(String url, Map<String, String> headers, String charset, byte[] body, boolean fromCache) {
+            this.url = url;
+            this.headers = headers;
+            this.charset = charset;
+            this.body = body;
+            this.fromCache = fromCache;
+        }
+
+        public String url() { return url; }
+
+        /** 本次响应的响应头（304 时为 304 响应的响应头） */
+        public Map<String, String> headers() { return headers; }
+
+        /** 响应声明的编码，未声明时为 null */
+        public String charset() { return charset; }
+
+        public byte[] body() { return body; }
+
+        /** 是否为 304、响应体来自本地缓存 */
+        public boolean fromCache() { return fromCache; }
+
+        /** 按声明编码（未声明时自动探测）解析为文档 */
+        public Document parse() throws IOException {
+            return Jsoup.parse(new ByteArrayInputStream(body), charset, url);
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long bytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public String stats() {
+        return String.format("命中(304) %d 次，未命中 %d 次，节省 %.1f KB",
+                hits.get(), misses.get(), bytesSaved.get() / 1024.0);
+    }
+
+    private byte[] readHit(Entry cached) throws IOException {
+        byte[] body = Files.readAllBytes(cached.body);
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(body.length);
+        return body;
+    }
+
+    // 读取缓存条目，元数据或响应体缺失时视为未缓存
+    private Entry lookup(String url) {
+        Path meta = pathOf(url, ".meta");
+        Path body = pathOf(url, ".body");
+        if (!Files.exists(meta) || !Files.exists(body)) return null;
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!url.equals(props.getProperty("url"))) return null; // 指纹冲突
+        return new Entry(props.getProperty("etag"), props.getProperty("lastModified"),
+                props.getProperty("charset"), body);
+    }
+
+    // 先写临时文件再原子替换，并发写同一 URL 时不会读到半截内容
+    private void save(String url, String etag, String lastModified, String charset, byte[] body) {
+        if (etag == null && lastModified == null) return;
+        try {
+            Path meta = pathOf(url, ".meta");
+            Files.createDirectories(meta.getParent());
+            Properties props = new Properties();
+            props.setProperty("url", url);
+            if (etag != null) props.setProperty("etag", etag);
+            if (lastModified != null) props.setProperty("lastModified", lastModified);
+            if (charset != null) props.setProperty("charset", charset);
+
+            String tempSuffix = "." + UUID.randomUUID() + ".tmp";
+            Path bodyTemp = meta.resolveSibling(meta.getFileName() + tempSuffix + "b");
+            Path metaTemp = meta.resolveSibling(meta.getFileName() + tempSuffix);
+            Files.write(bodyTemp, body);
+            try (Writer writer = Files.newBufferedWriter(metaTemp, StandardCharsets.UTF_8)) {
+                props.store(writer, null);
+            }
+            StreamingDownloader.moveAtomically(bodyTemp, pathOf(url, ".body"));
+            StreamingDownloader.moveAtomically(metaTemp, meta);
+        } catch (IOException e) {
+            System.err.println("[WARN] 写入HTTP缓存失败: " + url + "，原因: " + e.getMessage());
+        }
+    }
+
+    private Path pathOf(String url, String suffix) {
+        String name = String.format("%016x", Fingerprints.fp64(url));
+        return dir.resolve(name.substring(0, 2)).resolve(name + suffix);
+    }
+
+    private static Charset charsetOf(String name, String defaultCharset) {
+        try {
+            return Charset.forName(name != null ? name : defaultCharset);
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private static String headerValue(Header header) {
+        return header != null ? header.getValue() : null;
+    }
+}
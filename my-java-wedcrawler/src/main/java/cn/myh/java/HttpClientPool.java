@@ -0,0 +1,100 @@
+package cn.myh.java;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享的连接池 HTTP 客户端
+ * 进程内只创建一个客户端，按路由限制连接数并复用 keep-alive 连接，
+ * 避免每次请求都重新握手。参数可通过系统属性覆盖：
+ * http.maxTotal、http.maxPerRoute、http.connectTimeout、http.readTimeout（毫秒）
+ */
+public final class HttpClientPool {
+    private static final int MAX_TOTAL = Integer.getInteger("http.maxTotal", 20);
+    private static final int MAX_PER_ROUTE = Integer.getInteger("http.maxPerRoute", 4);
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("http.connectTimeout", 5000);
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("http.readTimeout", 15000);
+    private static final int POOL_WAIT_MS = 10000; // 等待空闲连接的最长时间
+    private static final long DEFAULT_KEEP_ALIVE_MS = 30000; // 服务端未声明 Keep-Alive 时的保活时间
+    private static final long IDLE_EVICT_SECONDS = 60;
+
+    private static final PoolingHttpClientConnectionManager connectionManager;
+    private static final CloseableHttpClient client;
+
+    static {
+        connectionManager = new PoolingHttpClientConnectionManager(DEFAULT_KEEP_ALIVE_MS * 2, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(MAX_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                .setSocketTimeout(READ_TIMEOUT_MS)
+                .setConnectionRequestTimeout(POOL_WAIT_MS)
+                .build();
+
+        // 优先使用服务端 Keep-Alive 头，未声明时使用默认保活时间
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return duration > 0 ? duration : DEFAULT_KEEP_ALIVE_MS;
+        };
+
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_EVICT_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(HttpClientPool::shutdown, "http-pool-shutdown"));
+    }
+
+    private HttpClientPool() {}
+
+    /**
+     * 获取共享客户端；调用方只需关闭响应（或读完实体），不要关闭客户端本身
+     */
+    public static CloseableHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * 为指定主机单独设置最大连接数
+     */
+    public static void setMaxPerRoute(String scheme, String host, int max) {
+        int port = "https".equalsIgnoreCase(scheme) ? 443 : 80;
+        connectionManager.setMaxPerRoute(new HttpRoute(new HttpHost(host, port, scheme)), max);
+    }
+
+    public static PoolStats totalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * 连接池状态摘要：已租用、空闲可用、等待连接的请求数
+     */
+    public static String stats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return String.format("leased=%d, available=%d, pending=%d, max=%d",
+                stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    public static void shutdown() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            System.err.println("[WARN] 关闭HTTP连接池失败: " + e.getMessage());
+        }
+    }
+}
@@ -1,18 +1,16 @@
 package cn.myh.java;
 
-import org.apache.commons.io.FileUtils;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 public class ImageCrawl {
 
@@ -26,9 +24,8 @@ public class ImageCrawl {
     private static void jsoup() {
         try {
             System.out.println("开始爬取网页：" + url);
-            Document document = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36")
-                    .get();
+            Document document = HttpCache.shared().getDocument(Jsoup.connect(url)
+                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36"));
 
             // 优化选择器，查找所有 img 标签
             Elements select = document.select("img");
@@ -39,6 +36,7 @@ public class ImageCrawl {
             imageStats.put("jpeg", 0);
             imageStats.put("png", 0);
             int successCount = 0;
+            ImageStore imageStore = new ImageStore(Paths.get("D:\\新建文件夹\\images")); // 按内容寻址，重复图片只保存一份
             
             for (Element element : select) {
                 String imgUrl = element.attr("src");
@@ -73,25 +71,23 @@ public class ImageCrawl {
                     continue;
                 }
                 
-                if (imgUrl.startsWith("//")) {
-                    imgUrl = "https:" + imgUrl;
-                } else if (!imgUrl.startsWith("http")) {
-                    imgUrl = "https://" + imgUrl;
+                // 按页面地址解析并规范化图片链接
+                String rawUrl = imgUrl;
+                imgUrl = UrlCanonicalizer.resolve(document.location(), imgUrl);
+                if (imgUrl == null) {
+                    System.out.println("跳过无效图片链接：" + rawUrl);
+                    continue;
                 }
                 
                 System.out.println("正在下载" + extension.substring(1) + "图片：" + imgUrl);
                 try {
-                    Connection.Response response = Jsoup.connect(imgUrl)
+                    Connection conn = Jsoup.connect(imgUrl)
                             .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/129.0.0.0 Safari/537.36")
-                            .ignoreContentType(true)
-                            .timeout(5000)
-                            .execute();
+                            .timeout(5000);
 
-                    String fileName = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(10);
-                    File outputFile = new File("D:\\新建文件夹\\" + fileName + extension);
-                    FileUtils.copyInputStreamToFile(new ByteArrayInputStream(response.bodyAsBytes()), outputFile);
+                    Path saved = imageStore.store(imgUrl, conn, extension, StreamingDownloader.DEFAULT_MAX_BYTES, 1);
                     successCount++;
-                    System.out.println("成功下载图片：" + outputFile.getAbsolutePath());
+                    System.out.println("成功下载图片：" + saved.toAbsolutePath());
                 } catch (IOException e) {
                     System.err.println("下载图片失败：" + imgUrl + "，错误信息：" + e.getMessage());
                 }
@@ -103,6 +99,9 @@ public class ImageCrawl {
             System.out.println("- JPEG图片：" + imageStats.get("jpeg") + "张");
             System.out.println("- PNG图片：" + imageStats.get("png") + "张");
             System.out.println("页面img标签总数：" + select.size());
+            imageStore.close();
+            System.out.println("图片存储：" + imageStore.stats());
+            System.out.println("HTTP缓存：" + HttpCache.shared().stats());
 
         } catch (IOException e) {
             System.err.println("爬取过程发生错误：" + e.getMessage());
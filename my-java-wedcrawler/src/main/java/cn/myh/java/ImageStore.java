@@ -0,0 +1,152 @@
+package cn.myh.java;
+
+import org.jsoup.Connection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按内容寻址的图片存储
+ * 下载时边写边计算 SHA-256，每个摘要只保存一份文件，按摘要前两级分目录存放（blobs/ab/cd/摘要.扩展名）；
+ * index.tsv 记录 "来源URL → 摘要"，重复爬取已有图片的 URL 时不再发起请求，
+ * 不同 URL 指向同一张图片时只保留一份文件。
+ */
+public class ImageStore implements AutoCloseable {
+    private static final String INDEX_FILE = "index.tsv";
+
+    private final Path blobDir;
+    private final Path tempDir;
+    private final Map<String, String> urlIndex = new ConcurrentHashMap<>(); // URL -> 摘要.扩展名
+    private final BufferedWriter indexWriter;
+    private final AtomicLong stored = new AtomicLong();     // 新保存的图片数
+    private final AtomicLong duplicates = new AtomicLong(); // 内容已存在、未保存的图片数
+    private final AtomicLong skipped = new AtomicLong();    // URL 已在索引中、未下载的图片数
+
+    /**
+     * 打开（或创建）存储目录并加载 URL 索引
+     */
+    public ImageStore(Path root) throws IOException {
+        this.blobDir = root.resolve("blobs");
+        this.tempDir = root.resolve("tmp");
+        Files.createDirectories(blobDir);
+        Files.createDirectories(tempDir);
+        Path indexFile = root.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        urlIndex.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        this.indexWriter = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 下载并保存图片；URL 已保存过且文件仍在时直接返回已有文件
+     * @param url       图片地址（索引键）
+     * @param conn      已设置好请求头的连接
+     * @param extension 文件扩展名（含点）
+     * @return 图片在存储中的路径
+     */
+    public Path store(String url, Connection conn, String extension, long maxBytes, long minBytes) throws IOException {
+        Path existing = lookup(url);
+        if (existing != null) {
+            skipped.incrementAndGet();
+            return existing;
+        }
+
+        MessageDigest digest = newDigest();
+        Path temp = tempDir.resolve(UUID.randomUUID() + extension);
+        StreamingDownloader.download(conn, temp, maxBytes, minBytes, digest);
+
+        String name = toHex(digest.digest()) + extension;
+        Path blob = blobPath(name);
+        if (Files.exists(blob)) {
+            Files.deleteIfExists(temp); // 内容相同的图片已存在
+            duplicates.incrementAndGet();
+        } else {
+            Files.createDirectories(blob.getParent());
+            StreamingDownloader.moveAtomically(temp, blob);
+            stored.incrementAndGet();
+        }
+        record(url, name);
+        return blob;
+    }
+
+    /**
+     * 查询 URL 对应的已保存文件，未保存或文件已被删除时返回 null
+     */
+    public Path lookup(String url) {
+        String name = urlIndex.get(url);
+        if (name == null) return null;
+        Path blob = blobPath(name);
+        return Files.exists(blob) ? blob : null;
+    }
+
+    public long storedCount() {
+        return stored.get();
+    }
+
+    public long duplicateCount() {
+        return duplicates.get();
+    }
+
+    public long skippedCount() {
+        return skipped.get();
+    }
+
+    public String stats() {
+        return "新保存 " + stored.get() + " 张，内容重复 " + duplicates.get() + " 张，URL 已存在跳过 " + skipped.get() + " 张";
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        indexWriter.close();
+    }
+
+    // 追加写索引，每行立即刷盘，程序中断时已下载的图片不会丢失索引
+    private synchronized void record(String url, String name) throws IOException {
+        if (name.equals(urlIndex.put(url, name))) return;
+        indexWriter.write(url);
+        indexWriter.write('\t');
+        indexWriter.write(name);
+        indexWriter.newLine();
+        indexWriter.flush();
+    }
+
+    private Path blobPath(String name) {
+        return blobDir.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JVM 不支持 SHA-256", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package cn.myh.java;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 流式链接发现
+ * 基于 HtmlAttributeScanner 的标签事件，边读取响应边回调链接（附链接文字、嵌套深度、是否包含图片）和图片地址，
+ * 不构建 DOM。只需要发现链接的页面用它代替 Jsoup 解析，需要提取正文的页面再构建 DOM。
+ * 嵌套深度按开始/结束标签配对估算，并处理 p、li、td 等常见的隐式闭合，与 Jsoup 的 parents().size() 在常规页面上一致。
+ */
+public final class LinkScanner {
+    private static final HtmlAttributeScanner SCANNER = new HtmlAttributeScanner(
+            "a", "href", "img", "src", "img", "data-src");
+    private static final Set<String> VOID_ELEMENTS = new HashSet<>(Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"));
+    // 开始时隐式结束未闭合 <p> 的块级元素
+    private static final Set<String> CLOSES_P = new HashSet<>(Arrays.asList(
+            "address", "article", "aside", "blockquote", "dd", "div", "dl", "dt", "fieldset", "footer", "form",
+            "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main", "nav", "ol", "p", "pre", "section", "table", "ul"));
+    // 查找隐式闭合目标时不越过的元素
+    private static final Set<String> SCOPE = new HashSet<>(Arrays.asList(
+            "html", "table", "td", "th", "caption", "button", "object", "template", "applet", "marquee"));
+    private static final Set<String> LIST_SCOPE = union(SCOPE, "ul", "ol");
+    private static final Set<String> DEF_SCOPE = union(SCOPE, "dl");
+    private static final Set<String> ROW_SCOPE = new HashSet<>(Arrays.asList("html", "table", "template"));
+    private static final Set<String> CELL_SCOPE = union(ROW_SCOPE, "tr");
+    private static final int MAX_LINK_TEXT = 256; // 链接文字只用于关键词判断，超出部分不保留
+    private static final int SNIFF_BYTES = 1024;  // 未声明编码时在开头多少字节内查找 <meta charset>
+    private static final Pattern META_CHARSET = Pattern.compile("(?i)<meta[^>]+charset\\s*=\\s*[\"']?\\s*([\\w.:-]+)");
+
+    private LinkScanner() {}
+
+    /**
+     * 扫描回调
+     */
+    public interface Listener {
+        /**
+         * 一个带 href 的链接元素结束时回调
+         * @param text     链接内的文字（空白已合并、实体未解码）
+         * @param depth    链接元素的祖先元素个数
+         * @param hasImage 链接内是否包含图片
+         */
+        void onLink(String href, String text, int depth, boolean hasImage);
+
+        /** 一个图片标签；src、data-src 未设置时为 null */
+        default void onImage(String src, String dataSrc) {}
+
+        /**
+         * 列表项（li）中的第一张图片，在 onImage 之后回调，相当于 Jsoup 对每个 li 执行 selectFirst("img")；
+         * 同一张图片同时是嵌套列表项的第一张图片时只回调一次
+         */
+        default void onListItemImage(String src, String dataSrc) {}
+    }
+
+    /**
+     * 扫描整个输入流，调用方负责关闭 reader
+     */
+    public static void scan(Reader reader, Listener listener) throws IOException {
+        Handler handler = new Handler(listener);
+        SCANNER.scanTags(reader, handler);
+        handler.finishLink();
+    }
+
+    /**
+     * 按声明的编码打开响应流；未声明时在开头查找 &lt;meta charset&gt;，仍未找到按 UTF-8
+     */
+    public static Reader reader(InputStream in, String declaredCharset) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        Charset charset = charsetOf(declaredCharset);
+        if (charset == null) {
+            buffered.mark(SNIFF_BYTES);
+            byte[] head = buffered.readNBytes(SNIFF_BYTES);
+            buffered.reset();
+            Matcher m = META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1));
+            charset = m.find() ? charsetOf(m.group(1)) : null;
+        }
+        return new InputStreamReader(buffered, charset != null ? charset : StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> union(Set<String> base, String... more) {
+        Set<String> set = new HashSet<>(base);
+        set.addAll(Arrays.asList(more));
+        return set;
+    }
+
+    private static Charset charsetOf(String name) {
+        if (name == null) return null;
+        try {
+            return Charset.forName(name.trim());
+        } catch (IllegalArgumentException e) {
+            return null; // 无法识别的编码
+        }
+    }
+
+    // 维护打开的元素栈和当前链接
+    private static final class Handler implements HtmlAttributeScanner.TagHandler {
+        private final Listener listener;
+        private final Deque<String> open = new ArrayDeque<>();
+        private final StringBuilder linkText = new StringBuilder();
+        private String href;  // 当前链接，null 表示不在链接内
+        private int linkDepth;
+        private boolean linkHasImage;
+        private int openListItems;     // 打开的 li 个数
+        private int imagedListItems;   // 其中已包含图片的个数，总是外层的那几个
+
+        Handler(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onStartTag(String tagName, Map<String, String> attrs, boolean selfClosing) {
+            closeImplied(tagName);
+            if (tagName.equals("a")) {
+                finishLink(); // 链接不能嵌套，新链接开始时结束上一个
+                href = attrs.get("href");
+                linkDepth = open.size();
+                linkHasImage = false;
+                linkText.setLength(0);
+            } else if (tagName.equals("img")) {
+                linkHasImage = true;
+                listener.onImage(attrs.get("src"), attrs.get("data-src"));
+                if (imagedListItems < openListItems) {
+                    listener.onListItemImage(attrs.get("src"), attrs.get("data-src"));
+                    imagedListItems = openListItems;
+                }
+            }
+            if (!selfClosing && !VOID_ELEMENTS.contains(tagName)) {
+                open.push(tagName);
+                if (tagName.equals("li")) openListItems++;
+            }
+        }
+
+        @Override
+        public void onEndTag(String tagName) {
+            if (open.contains(tagName)) { // 忽略没有对应开始标签的结束标签
+                popThrough(tagName);
+            }
+        }
+
+        // 按 HTML 规则隐式结束尚未闭合的元素，如新的 <li> 结束上一个 <li>
+        private void closeImplied(String tagName) {
+            if (CLOSES_P.contains(tagName)) closeInScope("p", SCOPE);
+            switch (tagName) {
+                case "a":
+                    closeInScope("a", SCOPE);
+                    break;
+                case "li":
+                    closeInScope("li", LIST_SCOPE);
+                    break;
+                case "dt":
+                case "dd":
+                    closeInScope("dt", DEF_SCOPE);
+                    closeInScope("dd", DEF_SCOPE);
+                    break;
+                case "tr":
+                    closeInScope("tr", ROW_SCOPE);
+                    break;
+                case "td":
+                case "th":
+                    closeInScope("td", CELL_SCOPE);
+                    closeInScope("th", CELL_SCOPE);
+                    break;
+                case "option":
+                    if ("option".equals(open.peek())) popThrough("option");
+                    break;
+                default:
+            }
+        }
+
+        // 在遇到边界元素之前找到 target 时，关闭到 target 为止
+        private void closeInScope(String target, Set<String> boundaries) {
+            for (String tag : open) {
+                if (tag.equals(target)) {
+                    popThrough(target);
+                    return;
+                }
+                if (boundaries.contains(tag)) return;
+            }
+        }
+
+        // 关闭到对应的开始标签为止，途中未闭合的元素一并关闭
+        private void popThrough(String tagName) {
+            for (Iterator<String> it = open.iterator(); it.hasNext(); ) {
+                String closed = it.next();
+                it.remove();
+                if (closed.equals("a")) finishLink();
+                if (closed.equals("li")) {
+                    openListItems--;
+                    imagedListItems = Math.min(imagedListItems, openListItems);
+                }
+                if (closed.equals(tagName)) break;
+            }
+        }
+
+        @Override
+        public void onText(char[] buf, int start, int length) {
+            if (href == null) return;
+            for (int i = start; i < start + length && linkText.length() < MAX_LINK_TEXT; i++) {
+                char c = buf[i];
+                if (Character.isWhitespace(c)) {
+                    if (linkText.length() > 0 && linkText.charAt(linkText.length() - 1) != ' ') {
+                        linkText.append(' ');
+                    }
+                } else {
+                    linkText.append(c);
+                }
+            }
+        }
+
+        void finishLink() {
+            if (href != null) {
+                listener.onLink(href, linkText.toString().trim(), linkDepth, linkHasImage);
+                href = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cn.myh.java;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 电影统计聚合
+ * 对列式数据集只遍历一遍，用基本类型计数器同时得到评分分段（0.5 分一档）、年代、类型、国家/地区分布和标题缺失数；
+ * 数据量较大时按行区间拆分到 fork-join 线程池并行计算再合并。报告与图表都从同一个结果输出。
+ */
+public final class MovieAggregator {
+    public static final String UNKNOWN_TITLE = "未知标题";
+    private static final int RATING_BUCKETS = 21;  // 0.0, 0.5, ..., 10.0
+    private static final int FIRST_DECADE = 1800;  // 年代计数器覆盖 1800s ~ 2090s
+    private static final int DECADES = 30;
+    private static final int PARALLEL_THRESHOLD = Integer.getInteger("aggregate.threshold", 8192); // 每个子任务的最大行数
+
+    private MovieAggregator() {}
+
+    /**
+     * 评分分段回调
+     */
+    @FunctionalInterface
+    public interface RatingBucketConsumer {
+        /** @param low 分段下限（如 8.5 表示 8.5~9.0） */
+        void accept(double low, int count);
+    }
+
+    /**
+     * 计算全部分布
+     */
+    public static Result aggregate(MovieColumns data) {
+        Counts counts = data.size() <= PARALLEL_THRESHOLD
+                ? new Counts(data).scan(0, data.size())
+                : ForkJoinPool.commonPool().invoke(new ScanTask(data, 0, data.size()));
+        return new Result(data, counts);
+    }
+
+    /**
+     * 聚合结果
+     */
+    public static final class Result {
+        private final int total;
+        private final Counts counts;
+        private final Histogram genres;
+        private final Histogram countries;
+
+        private Result(MovieColumns data, Counts counts) {
+            this.total = data.size();
+            this.counts = counts;
+            this.genres = new Histogram(data.genres(), counts.genres);
+            this.countries = new Histogram(data.countries(), counts.countries);
+        }
+
+        public int total() { return total; }
+
+        /** 标题缺失（为空或为"未知标题"）的条数 */
+        public int unknownTitles() { return counts.unknownTitles; }
+
+        /** 年份未知或超出统计范围的条数 */
+        public int unknownYears() { return counts.unknownYears; }
+
+        /** 按分段从低到高回调非空的评分分段 */
+        public void forEachRatingBucket(RatingBucketConsumer consumer) {
+            for (int b = 0; b < RATING_BUCKETS; b++) {
+                if (counts.ratings[b] > 0) consumer.accept(b / 2.0, counts.ratings[b]);
+            }
+        }
+
+        /** 按年代从早到晚回调非空的年代（如 "1990s"） */
+        public void forEachDecade(ObjIntConsumer<String> consumer) {
+            for (int d = 0; d < DECADES; d++) {
+                if (counts.decades[d] > 0) consumer.accept((FIRST_DECADE + d * 10) + "s", counts.decades[d]);
+            }
+        }
+
+        public Histogram genres() { return genres; }
+
+        public Histogram countries() { return countries; }
+    }
+
+    /**
+     * 多值字段的取值分布
+     */
+    public static final class Histogram {
+        private final MovieColumns.Column column;
+        private final int[] counts;
+
+        private Histogram(MovieColumns.Column column, int[] counts) {
+            this.column = column;
+            this.counts = counts;
+        }
+
+        /** 按取值排序回调全部取值 */
+        public void forEachByName(ObjIntConsumer<String> consumer) {
+            IntStream.range(0, counts.length).boxed()
+                    .sorted(Comparator.comparing(column::value))
+                    .forEach(code -> consumer.accept(column.value(code), counts[code]));
+        }
+
+        /** 出现次数最多的前 limit 个取值，按次数降序 */
+        public Map<String, Integer> top(int limit) {
+            Map<String, Integer> top = new LinkedHashMap<>();
+            IntStream.range(0, counts.length).boxed()
+                    .sorted((a, b) -> Integer.compare(counts[b], counts[a]))
+                    .limit(limit)
+                    .forEach(code -> top.put(column.value(code), counts[code]));
+            return top;
+        }
+    }
+
+    // 一个行区间的计数器
+    private static final class Counts {
+        final MovieColumns data;
+        final int[] ratings = new int[RATING_BUCKETS];
+        final int[] decades = new int[DECADES];
+        final int[] genres;
+        final int[] countries;
+        int unknownTitles;
+        int unknownYears;
+
+        Counts(MovieColumns data) {
+            this.data = data;
+            this.genres = new int[data.genres().dictionarySize()];
+            this.countries = new int[data.countries().dictionarySize()];
+        }
+
+        Counts scan(int from, int to) {
+            MovieColumns.Column genreColumn = data.genres();
+            MovieColumns.Column countryColumn = data.countries();
+            for (int row = from; row < to; row++) {
+                int bucket = (int) Math.floor(data.rating(row) * 2);
+                ratings[Math.max(0, Math.min(RATING_BUCKETS - 1, bucket))]++;
+
+                int decade = (data.year(row) - FIRST_DECADE) / 10;
+                if (data.year(row) != MovieColumns.NO_YEAR && decade >= 0 && decade < DECADES) {
+                    decades[decade]++;
+                } else {
+                    unknownYears++;
+                }
+
+                for (int i = 0, n = genreColumn.count(row); i < n; i++) {
+                    genres[genreColumn.code(row, i)]++;
+                }
+                for (int i = 0, n = countryColumn.count(row); i < n; i++) {
+                    countries[countryColumn.code(row, i)]++;
+                }
+
+                String title = data.title(row);
+                if (title == null || title.isEmpty() || title.equals(UNKNOWN_TITLE)) {
+                    unknownTitles++;
+                }
+            }
+            return this;
+        }
+
+        Counts merge(Counts other) {
+            add(ratings, other.ratings);
+            add(decades, other.decades);
+            add(genres, other.genres);
+            add(countries, other.countries);
+            unknownTitles += other.unknownTitles;
+            unknownYears += other.unknownYears;
+            return this;
+        }
+
+        private static void add(int[] into, int[] from) {
+            for (int i = 0; i < into.length; i++) into[i] += from[i];
+        }
+    }
+
+    // 按行区间二分的并行任务
+    private static final class ScanTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        private final MovieColumns data;
+        private final int from;
+        private final int to;
+
+        ScanTask(MovieColumns data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return new Counts(data).scan(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(data, from, mid);
+            left.fork();
+            Counts right = new ScanTask(data, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package cn.myh.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * 列式存储的电影数据集
+ * 评分、评价人数、年份存为基本类型数组；类型、国家/地区、语言等多值字段只在构建时拆分一次，
+ * 按字典编码成 int 列（CSR：每行的取值编码连续存放，offsets 记录每行起止）。
+ * 统计图表、报告和临时查询直接在数组上计算，不再反复拆分字符串。构建后只读，可被多个线程同时读取。
+ */
+public final class MovieColumns {
+    public static final int NO_YEAR = 0; // 年份未知
+
+    private final int size;
+    private final String[] titles;
+    private final double[] ratings;
+    private final int[] votes;
+    private final int[] years;
+    private final Column genres;
+    private final Column countries;
+    private final Column languages;
+
+    private MovieColumns(Builder b) {
+        this.size = b.size;
+        this.titles = Arrays.copyOf(b.titles, b.size);
+        this.ratings = Arrays.copyOf(b.ratings, b.size);
+        this.votes = Arrays.copyOf(b.votes, b.size);
+        this.years = Arrays.copyOf(b.years, b.size);
+        this.genres = b.genres.build(b.size);
+        this.countries = b.countries.build(b.size);
+        this.languages = b.languages.build(b.size);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() { return size; }
+
+    public String title(int row) { return titles[row]; }
+
+    public double rating(int row) { return ratings[row]; }
+
+    public int votes(int row) { return votes[row]; }
+
+    /** 上映年份，未知时为 NO_YEAR */
+    public int year(int row) { return years[row]; }
+
+    public Column genres() { return genres; }
+
+    public Column countries() { return countries; }
+
+    public Column languages() { return languages; }
+
+    /**
+     * 返回满足条件的行号，如 select(r -> data.rating(r) >= 9 && data.genres().contains(r, code))
+     */
+    public int[] select(IntPredicate rowFilter) {
+        int[] rows = new int[size];
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            if (rowFilter.test(row)) rows[n++] = row;
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * 字典编码的多值列
+     */
+    public static final class Column {
+        private final String[] dictionary; // 编码 -> 取值
+        private final Map<String, Integer> codes;
+        private final int[] offsets;       // 第 row 行的编码位于 values[offsets[row] .. offsets[row+1])
+        private final int[] values;
+
+        private Column(String[] dictionary, Map<String, Integer> codes, int[] offsets, int[] values) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        /** 不同取值的个数 */
+        public int dictionarySize() { return dictionary.length; }
+
+        public String value(int code) { return dictionary[code]; }
+
+        /** 取值对应的编码，不存在时返回 -1 */
+        public int code(String value) {
+            Integer code = codes.get(value);
+            return code != null ? code : -1;
+        }
+
+        /** 第 row 行的取值个数 */
+        public int count(int row) { return offsets[row + 1] - offsets[row]; }
+
+        /** 第 row 行的第 i 个取值编码 */
+        public int code(int row, int i) { return values[offsets[row] + i]; }
+
+        public boolean contains(int row, int code) {
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                if (values[i] == code) return true;
+            }
+            return false;
+        }
+
+        /** 各取值出现的次数，按编码下标 */
+        public int[] frequencies() {
+            int[] counts = new int[dictionary.length];
+            for (int code : values) counts[code]++;
+            return counts;
+        }
+    }
+
+    /**
+     * 逐行追加构建；多值字段按空白和 "/" 拆分
+     */
+    public static final class Builder {
+        private int size = 0;
+        private String[] titles = new String[64];
+        private double[] ratings = new double[64];
+        private int[] votes = new int[64];
+        private int[] years = new int[64];
+        private final ColumnBuilder genres = new ColumnBuilder();
+        private final ColumnBuilder countries = new ColumnBuilder();
+        private final ColumnBuilder languages = new ColumnBuilder();
+
+        private Builder() {}
+
+        /**
+         * @param year 年份字符串，无法解析时记为 NO_YEAR
+         */
+        public Builder add(String title, double rating, int voteCount, String year,
+                           String genreList, String countryList, String languageList) {
+            if (size == titles.length) {
+                int capacity = size * 2;
+                titles = Arrays.copyOf(titles, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                votes = Arrays.copyOf(votes, capacity);
+                years = Arrays.copyOf(years, capacity);
+            }
+            titles[size] = title;
+            ratings[size] = rating;
+            votes[size] = voteCount;
+            years[size] = parseYear(year);
+            genres.addRow(genreList);
+            countries.addRow(countryList);
+            languages.addRow(languageList);
+            size++;
+            return this;
+        }
+
+        public int size() { return size; }
+
+        public MovieColumns build() {
+            return new MovieColumns(this);
+        }
+
+        private static int parseYear(String year) {
+            if (year == null) return NO_YEAR;
+            String digits = year.trim();
+            if (digits.length() < 4) return NO_YEAR;
+            try {
+                return Integer.parseInt(digits.substring(0, 4));
+            } catch (NumberFormatException e) {
+                return NO_YEAR;
+            }
+        }
+    }
+
+    // 多值列的构建器
+    private static final class ColumnBuilder {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] offsets = new int[65];
+        private int[] values = new int[128];
+        private int rows = 0;
+        private int length = 0;
+
+        void addRow(String list) {
+            if (list != null) {
+                int start = -1;
+                for (int i = 0; i <= list.length(); i++) {
+                    boolean separator = i == list.length() || list.charAt(i) == '/' || Character.isWhitespace(list.charAt(i));
+                    if (!separator && start < 0) {
+                        start = i;
+                    } else if (separator && start >= 0) {
+                        addValue(list.substring(start, i));
+                        start = -1;
+                    }
+                }
+            }
+            rows++;
+            if (rows + 1 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[rows] = length;
+        }
+
+        private void addValue(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            if (length == values.length) {
+                values = Arrays.copyOf(values, length * 2);
+            }
+            values[length++] = code;
+        }
+
+        Column build(int size) {
+            return new Column(dictionary.toArray(new String[0]), new HashMap<>(codes),
+                    Arrays.copyOf(offsets, size + 1), Arrays.copyOf(values, length));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package cn.myh.java;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 电影表只读查询
+ * 打开时在评分、评价人数、年份和标题上建索引（已存在则跳过），之后通过小连接池执行参数化查询：
+ * 按评分取前 N、按类型/年代筛选、按标题查找，均支持分页；全量遍历按 fetchSize 分批读取结果，不把整表载入内存。
+ * 适用于 movies（DataCrawler）和 enhanced_movies（EnhancedDataCrawler）两张表，前者没有年份和类型字段。
+ */
+public class MovieQueries implements AutoCloseable {
+    private static final int POOL_SIZE = Integer.getInteger("query.poolSize", 4);
+    private static final int FETCH_SIZE = Integer.getInteger("query.fetchSize", 100);
+    // 表名会拼进 SQL，只接受这两张表
+    private static final Set<String> TABLES = new HashSet<>(Arrays.asList("movies", "enhanced_movies"));
+
+    /**
+     * 一条查询结果；movies 表没有的字段为 null
+     */
+    public static final class Movie {
+        private final String subjectId;
+        private final String title;
+        private final double rating;
+        private final int votes;
+        private final String year;
+        private final String genres;
+
+        Movie(String subjectId, String title, double rating, int votes, String year, String genres) {
+            this.subjectId = subjectId;
+            this.title = title;
+            this.rating = rating;
+            this.votes = votes;
+            this.year = year;
+            this.genres = genres;
+        }
+
+        public String subjectId() { return subjectId; }
+
+        public String title() { return title; }
+
+        public double rating() { return rating; }
+
+        public int votes() { return votes; }
+
+        public String year() { return year; }
+
+        public String genres() { return genres; }
+
+        @Override
+        public String toString() {
+            return String.format("%s - %.1f分（%d人评价）%s", title, rating, votes, year != null ? " " + year : "");
+        }
+    }
+
+    private final JdbcConnectionPool pool;
+    private final String table;
+    private final boolean hasDetails; // 是否有 movie_year、genres 字段
+
+    // 查询语句在打开时拼好，执行时只绑定参数（H2 按连接缓存已解析的语句）
+    private final String topRatedSql;
+    private final String byGenreSql;
+    private final String byDecadeSql;
+    private final String byTitleSql;
+    private final String scanSql;
+
+    /**
+     * @param table movies 或 enhanced_movies，表需已存在
+     * @throws IllegalArgumentException 表名不是这两者之一
+     */
+    public MovieQueries(String jdbcUrl, String table) throws SQLException {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("不支持的电影表: " + table);
+        }
+        this.pool = JdbcConnectionPool.create(jdbcUrl, "", "");
+        pool.setMaxConnections(POOL_SIZE);
+        this.table = table;
+        try (Connection conn = pool.getConnection()) {
+            this.hasDetails = hasColumn(conn, "MOVIE_YEAR") && hasColumn(conn, "GENRES");
+            createIndexes(conn);
+        } catch (SQLException e) {
+            pool.dispose();
+            throw e;
+        }
+        String columns = "subject_id, title, rating, votes" + (hasDetails ? ", movie_year, genres" : "");
+        String select = "SELECT " + columns + " FROM " + table;
+        String order = " ORDER BY rating DESC, votes DESC";
+        this.topRatedSql = select + order + " LIMIT ? OFFSET ?";
+        // 类型以 " / " 分隔，去掉空格后两端补 "/"，按 "%/类型/%" 精确匹配整个取值
+        this.byGenreSql = select + " WHERE '/' || REPLACE(genres, ' ', '') || '/' LIKE ?" + order + " LIMIT ? OFFSET ?";
+        // movie_year 为 4 位字符串，按字符串区间比较可以走索引
+        this.byDecadeSql = select + " WHERE movie_year BETWEEN ? AND ?" + order + " LIMIT ? OFFSET ?";
+        this.byTitleSql = select + " WHERE title = ?" + order;
+        this.scanSql = select + " WHERE rating >= ?" + order;
+    }
+
+    /**
+     * 评分最高的电影（评分相同按评价人数），第 offset 条起取 limit 条
+     */
+    public List<Movie> topRated(int offset, int limit) throws SQLException {
+        return page(topRatedSql, offset, limit);
+    }
+
+    /**
+     * 某一类型的电影，按评分降序分页
+     */
+    public List<Movie> byGenre(String genre, int offset, int limit) throws SQLException {
+        requireDetails();
+        return page(byGenreSql, offset, limit, "%/" + genre.trim() + "/%");
+    }
+
+    /**
+     * 某一年代（如 1990）的电影，按评分降序分页
+     */
+    public List<Movie> byDecade(int decade, int offset, int limit) throws SQLException {
+        requireDetails();
+        int start = decade / 10 * 10;
+        return page(byDecadeSql, offset, limit, String.valueOf(start), String.valueOf(start + 9));
+    }
+
+    /**
+     * 按标题精确查找（可能有同名电影）
+     */
+    public List<Movie> findByTitle(String title) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(byTitleSql)) {
+            pstmt.setString(1, title);
+            return readAll(pstmt);
+        }
+    }
+
+    /**
+     * 按评分降序逐条回调评分不低于 minRating 的电影，结果按 fetchSize 分批读取
+     * @return 回调的条数
+     */
+    public long forEachRatedAtLeast(double minRating, Consumer<Movie> consumer) throws SQLException {
+        long count = 0;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(scanSql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            pstmt.setDouble(1, minRating);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(read(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private void createIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // 评分索引带上评价人数，覆盖 ORDER BY rating DESC, votes DESC
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_rating ON " + table + "(rating DESC, votes DESC)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_votes ON " + table + "(votes)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_title ON " + table + "(title)");
+            if (hasDetails) {
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_year ON " + table + "(movie_year)");
+            }
+        }
+    }
+
+    private boolean hasColumn(Connection conn, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(null, null, table.toUpperCase(Locale.ROOT), column)) {
+            return rs.next();
+        }
+    }
+
+    private void requireDetails() {
+        if (!hasDetails) {
+            throw new IllegalStateException("表 " + table + " 没有年份/类型字段");
+        }
+    }
+
+    // 先绑定条件参数，再绑定 LIMIT / OFFSET
+    private List<Movie> page(String sql, int offset, int limit, String... params) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (String param : params) {
+                pstmt.setString(i++, param);
+            }
+            pstmt.setInt(i++, limit);
+            pstmt.setInt(i, offset);
+            pstmt.setFetchSize(Math.min(limit, FETCH_SIZE));
+            return readAll(pstmt);
+        }
+    }
+
+    private List<Movie> readAll(PreparedStatement pstmt) throws SQLException {
+        List<Movie> movies = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                movies.add(read(rs));
+            }
+        }
+        return movies;
+    }
+
+    private Movie read(ResultSet rs) throws SQLException {
+        return new Movie(rs.getString("subject_id"), rs.getString("title"), rs.getDouble("rating"), rs.getInt("votes"),
+                hasDetails ? rs.getString("movie_year") : null,
+                hasDetails ? rs.getString("genres") : null);
+    }
+}
@@ -0,0 +1,148 @@
+package cn.myh.java;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 近似重复页面索引
+ * SimHash 指纹按位切成 maxDistance+1 段，每段一张哈希表。汉明距离不超过 maxDistance 的两个指纹至少有一段完全相同，
+ * 因此查询只需比较与新指纹某一段相同的候选，不必和全部已收录页面逐个比较。
+ * 发现近似重复时把 "别名 → 原页面" 追加到别名文件，调用方据此不再保存该页面（并可不再扩展其链接）。线程安全。
+ */
+public class NearDuplicateIndex implements AutoCloseable {
+    /** 判为近似重复的最大汉明距离，可通过 -Ddedup.maxDistance 调整 */
+    public static final int DEFAULT_MAX_DISTANCE = Integer.getInteger("dedup.maxDistance", 3);
+    private static final int MIN_FEATURES = 16; // 特征太少（页面几乎没有内容）时不参与判重
+
+    private final int maxDistance;
+    private final int[] bandStart;                           // 第 i 段从第 bandStart[i] 位开始
+    private final List<Map<Long, List<Integer>>> bands;      // 每段：段的取值 -> 页面编号
+    private final Map<String, Integer> byUrl = new HashMap<>();
+    private final List<String> urls = new ArrayList<>();
+    private long[] fingerprints = new long[256];
+    private final Path aliasFile;
+    private BufferedWriter aliasWriter; // 第一次发现重复时才创建别名文件
+    private int aliasCount;
+
+    /**
+     * @param maxDistance 0~63
+     * @param aliasFile   别名记录文件（制表符分隔：别名、原页面、距离），为 null 时不记录
+     */
+    public NearDuplicateIndex(int maxDistance, Path aliasFile) {
+        if (maxDistance < 0 || maxDistance > 63) {
+            throw new IllegalArgumentException("maxDistance 必须在 0~63 之间: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        this.aliasFile = aliasFile;
+        int bandCount = maxDistance + 1;
+        this.bandStart = new int[bandCount + 1];
+        this.bands = new ArrayList<>(bandCount);
+        for (int i = 0; i <= bandCount; i++) {
+            bandStart[i] = i * 64 / bandCount;
+        }
+        for (int i = 0; i < bandCount; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 查找与 url 内容近似的已收录页面；没有时收录该页面
+     * @return 近似页面的 URL；不是重复、特征太少或该 URL 已收录过时返回 null
+     */
+    public synchronized String findOrAdd(String url, SimHash hash) {
+        if (hash.features() < MIN_FEATURES || byUrl.containsKey(url)) {
+            return null;
+        }
+        long fp = hash.value();
+        int best = -1;
+        int bestDistance = maxDistance + 1;
+        for (int band = 0; band < bands.size(); band++) {
+            List<Integer> candidates = bands.get(band).get(bandValue(fp, band));
+            if (candidates == null) continue;
+            for (int id : candidates) {
+                int distance = SimHash.distance(fp, fingerprints[id]);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = id;
+                }
+            }
+        }
+        if (best >= 0) {
+            recordAlias(url, urls.get(best), bestDistance);
+            return urls.get(best);
+        }
+        add(url, fp);
+        return null;
+    }
+
+    /** 已收录的页面数 */
+    public synchronized int size() {
+        return urls.size();
+    }
+
+    /** 判为近似重复的页面数 */
+    public synchronized int aliasCount() {
+        return aliasCount;
+    }
+
+    public synchronized String stats() {
+        return String.format("收录 %d 个页面，近似重复 %d 个", urls.size(), aliasCount);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (aliasWriter != null) {
+            try {
+                aliasWriter.close();
+            } catch (IOException e) {
+                System.err.println("关闭别名文件失败：" + aliasFile + "，错误：" + e.getMessage());
+            }
+            aliasWriter = null;
+        }
+    }
+
+    private void add(String url, long fp) {
+        int id = urls.size();
+        if (id == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, id * 2);
+        }
+        fingerprints[id] = fp;
+        urls.add(url);
+        byUrl.put(url, id);
+        for (int band = 0; band < bands.size(); band++) {
+            bands.get(band).computeIfAbsent(bandValue(fp, band), k -> new ArrayList<>(1)).add(id);
+        }
+    }
+
+    private long bandValue(long fp, int band) {
+        int width = bandStart[band + 1] - bandStart[band];
+        long mask = width == 64 ? -1L : (1L << width) - 1;
+        return fp >>> bandStart[band] & mask;
+    }
+
+    private void recordAlias(String alias, String original, int distance) {
+        aliasCount++;
+        if (aliasFile == null) return;
+        try {
+            if (aliasWriter == null) {
+                Path parent = aliasFile.toAbsolutePath().getParent();
+                if (parent != null) Files.createDirectories(parent);
+                aliasWriter = Files.newBufferedWriter(aliasFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            aliasWriter.write(alias + "\t" + original + "\t" + distance);
+            aliasWriter.newLine();
+        } catch (IOException e) {
+            System.err.println("写入别名记录失败：" + alias + "，错误：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package cn.myh.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 分段压缩的页面归档
+ * 把原始响应（URL、响应头、抓取时间、gzip 压缩的响应体）依次追加到滚动的分段文件 pages-NNNNNN.seg，
+ * index.tsv 记录 "URL → 分段号、偏移"，支持按 URL 随机读取和按写入顺序遍历。
+ * 与每页一个文件相比，文件数少、写入只是顺序追加。同一 URL 多次写入时按 URL 查询返回最新一条。
+ */
+public class PageArchive implements AutoCloseable {
+    private static final long DEFAULT_SEGMENT_BYTES = Long.getLong("archive.segmentBytes", 64L * 1024 * 1024);
+    private static final int RECORD_MAGIC = 0x50414732; // "PAG2"，字符串按 [int 长度][UTF-8 字节] 存储
+    private static final String INDEX_FILE = "index.tsv";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Map<String, long[]> index = new HashMap<>(); // URL -> {分段号, 偏移}
+    private final BufferedWriter indexWriter;
+    private DataOutputStream segmentOut;
+    private int segmentNo;
+    private long segmentPos;
+
+    /**
+     * 一条归档记录
+     */
+    public static final class Record {
+        private final String url;
+        private final long timestamp;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        Record(String url, long timestamp, Map<String, String> headers, byte[] body) {
+            this.url = url;
+            this.timestamp = timestamp;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String url() { return url; }
+
+        /** 抓取时间（毫秒时间戳） */
+        public long timestamp() { return timestamp; }
+
+        public Map<String, String> headers() { return headers; }
+
+        /** 解压后的原始响应体 */
+        public byte[] body() { return body; }
+
+        public String text(Charset charset) {
+            return new String(body, charset);
+        }
+    }
+
+    public PageArchive(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * 打开（或创建）归档目录，之后的记录追加到最后一个分段
+     * @param segmentBytes 单个分段的大小上限，超过后滚动到新分段
+     */
+    public PageArchive(Path dir, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        loadIndex();
+        List<Integer> segments = segmentNumbers();
+        segmentNo = segments.isEmpty() ? 1 : segments.get(segments.size() - 1);
+        openSegment();
+        this.indexWriter = Files.newBufferedWriter(dir.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 追加一条记录
+     * @param headers 响应头，可为 null
+     * @param body    原始响应体，写入时压缩
+     */
+    public synchronized void append(String url, Map<String, String> headers, long timestamp, byte[] body) throws IOException {
+        if (segmentPos >= segmentBytes) {
+            segmentOut.close();
+            segmentNo++;
+            openSegment();
+        }
+        Map<String, String> h = headers != null ? headers : Collections.emptyMap();
+        // 先在内存中编码完整条记录再一次写入，编码出错时不会在分段中留下半条记录
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + body.length / 4);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeInt(RECORD_MAGIC);
+        record.writeLong(timestamp);
+        writeString(record, url);
+        record.writeInt(h.size());
+        for (Map.Entry<String, String> e : h.entrySet()) {
+            writeString(record, e.getKey());
+            writeString(record, e.getValue());
+        }
+        writeBytes(record, gzip(body));
+
+        long offset = segmentPos;
+        try {
+            bytes.writeTo(segmentOut);
+            segmentOut.flush();
+        } catch (IOException e) {
+            discardPartialRecord();
+            throw e;
+        }
+        segmentPos += bytes.size();
+
+        index.put(url, new long[]{segmentNo, offset});
+        indexWriter.write(url + "\t" + segmentNo + "\t" + offset);
+        indexWriter.newLine();
+        indexWriter.flush();
+    }
+
+    public synchronized boolean contains(String url) {
+        return index.containsKey(url);
+    }
+
+    /**
+     * 按 URL 读取最新一条记录，不存在时返回 null
+     */
+    public Record get(String url) throws IOException {
+        long[] location;
+        synchronized (this) {
+            location = index.get(url);
+        }
+        if (location == null) return null;
+        try (FileChannel channel = FileChannel.open(segmentPath((int) location[0]), StandardOpenOption.READ)) {
+            channel.position(location[1]);
+            return readRecord(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+        }
+    }
+
+    /**
+     * 按写入顺序遍历全部记录
+     */
+    public void scan(Consumer<Record> consumer) throws IOException {
+        for (int no : segmentNumbers()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(no))))) {
+                Record record;
+                while ((record = readRecord(in)) != null) {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segmentOut.close();
+        indexWriter.close();
+    }
+
+    // 读取一条记录，到达分段末尾时返回 null
+    private static Record readRecord(DataInputStream in) throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic != RECORD_MAGIC) {
+            throw new IOException("归档记录格式错误");
+        }
+        long timestamp = in.readLong();
+        String url = readString(in);
+        int headerCount = in.readInt();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(in), readString(in));
+        }
+        return new Record(url, timestamp, headers, gunzip(readBytes(in)));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("归档记录格式错误");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // 分段开头连续完整记录的总字节数；进程在写入中途退出时，末尾可能留下半条记录
+    private static long validLength(Path path) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                long length = Integer.BYTES + Long.BYTES;
+                if (in.readInt() != RECORD_MAGIC) break;
+                in.readLong();
+                length += skipBytes(in);
+                int headerCount = in.readInt();
+                length += Integer.BYTES;
+                if (headerCount < 0) break;
+                for (int i = 0; i < headerCount * 2; i++) {
+                    length += skipBytes(in);
+                }
+                length += skipBytes(in);
+                valid += length;
+            }
+        } catch (EOFException e) {
+            // 到达末尾，最后一条记录不完整或恰好结束
+        }
+        return valid;
+    }
+
+    private static long skipBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new EOFException();
+        in.skipNBytes(length);
+        return Integer.BYTES + (long) length;
+    }
+
+    // 写入失败时丢弃已写出的半条记录，重新打开分段，之后的记录仍从完整记录末尾开始
+    private void discardPartialRecord() {
+        try {
+            segmentOut.close();
+        } catch (IOException ignored) {
+            // 关闭时的刷新失败不影响截断
+        }
+        try {
+            openSegment();
+        } catch (IOException e) {
+            System.err.println("重新打开归档分段失败：" + segmentPath(segmentNo) + "，错误：" + e.getMessage());
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path path = segmentPath(segmentNo);
+        segmentPos = 0;
+        if (Files.exists(path)) {
+            segmentPos = validLength(path);
+            if (segmentPos < Files.size(path)) {
+                System.err.println("归档分段末尾记录不完整，已截断：" + path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(segmentPos);
+                }
+                final int no = segmentNo;
+                final long end = segmentPos;
+                if (index.values().removeIf(location -> location[0] == no && location[1] >= end)) {
+                    rewriteIndex();
+                }
+            }
+        }
+        segmentOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexFile = dir.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) return;
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    index.put(parts[0], new long[]{Integer.parseInt(parts[1]), Long.parseLong(parts[2])});
+                }
+            }
+        }
+    }
+
+    // 索引中指向已截断记录的条目去掉后整体重写，避免之后的新记录占用同一偏移时被误认
+    private void rewriteIndex() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(INDEX_FILE), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, long[]> e : index.entrySet()) {
+                writer.write(e.getKey() + "\t" + e.getValue()[0] + "\t" + e.getValue()[1]);
+                writer.newLine();
+            }
+        }
+    }
+
+    private List<Integer> segmentNumbers() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "pages-*.seg")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                numbers.add(Integer.parseInt(name.substring(6, name.length() - 4)));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(int no) {
+        return dir.resolve(String.format("pages-%06d.seg", no));
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
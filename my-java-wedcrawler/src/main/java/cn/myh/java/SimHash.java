@@ -0,0 +1,76 @@
+package cn.myh.java;
+
+/**
+ * SimHash 指纹
+ * 每个特征（文本的字符 k-gram，或链接、图片地址等）取 64 位哈希，各位按 0/1 计 -1/+1 累加，
+ * 累加和为正的位取 1。内容相近的页面指纹只有少数位不同，可用汉明距离判断近似重复。
+ * 中文没有空格分词，文本按去掉空白后的连续 4 个字符切分，不依赖分词。
+ */
+public final class SimHash {
+    private static final int SHINGLE_CHARS = 4;
+
+    private final int[] weights = new int[64];
+    private int features;
+
+    /**
+     * 文本的指纹
+     */
+    public static long of(CharSequence text) {
+        return new SimHash().addShingles(text).value();
+    }
+
+    /**
+     * 两个指纹不同的位数
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 加入一个整体特征，如一个链接地址
+     */
+    public SimHash add(CharSequence feature) {
+        add(Fingerprints.fp64(feature));
+        return this;
+    }
+
+    /**
+     * 把文本切成连续的字符片段逐个加入，空白不计；不足一个片段长度的文本整体作为一个特征
+     */
+    public SimHash addShingles(CharSequence text) {
+        StringBuilder chars = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c) && c != '\u00a0' && c != '\u3000') {
+                chars.append(c);
+            }
+        }
+        if (chars.length() > 0 && chars.length() < SHINGLE_CHARS) {
+            add(Fingerprints.fp64(chars));
+        }
+        for (int i = 0; i + SHINGLE_CHARS <= chars.length(); i++) {
+            add(Fingerprints.fp64(chars, i, i + SHINGLE_CHARS));
+        }
+        return this;
+    }
+
+    /** 已加入的特征数，太少时指纹不可靠 */
+    public int features() {
+        return features;
+    }
+
+    public long value() {
+        long value = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) value |= 1L << bit;
+        }
+        return value;
+    }
+
+    private void add(long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += (hash >>> bit & 1) != 0 ? 1 : -1;
+        }
+        features++;
+    }
+}
@@ -0,0 +1,179 @@
+package cn.myh.java;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * 可溢出到磁盘的先进先出字符串队列
+ * 队首最多 hotCapacity 条保存在内存中，其余按顺序追加写入内存映射的分段文件，
+ * 内存中的队首取空后再从最早的分段批量读回；读完的分段文件立即删除。
+ * spillDir 为 null 时不溢出，等同于普通内存队列。非线程安全，由调用方加锁。
+ */
+class SpillQueue {
+    private static final int DEFAULT_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    private final ArrayDeque<String> hot = new ArrayDeque<>();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>(); // 最早的在队首，最后一个为写入段
+    private final Path spillDir;
+    private final String filePrefix;
+    private final int hotCapacity;
+    private final int segmentBytes;
+    private long spilled = 0;      // 磁盘上尚未读回的记录数
+    private int segmentSeq = 0;
+
+    // 单个内存映射分段：[int 长度][UTF-8 字节] 依次排列
+    private static class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePos = 0;
+        int readPos = 0;
+
+        Segment(Path path, int size) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        void delete() throws IOException {
+            unmap(buffer);
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    SpillQueue(Path spillDir, String filePrefix, int hotCapacity) {
+        this(spillDir, filePrefix, hotCapacity, DEFAULT_SEGMENT_BYTES);
+    }
+
+    SpillQueue(Path spillDir, String filePrefix, int hotCapacity, int segmentBytes) {
+        this.spillDir = spillDir;
+        this.filePrefix = filePrefix;
+        this.hotCapacity = Math.max(1, hotCapacity);
+        this.segmentBytes = segmentBytes;
+        deleteStaleSegments();
+    }
+
+    void add(String value) {
+        // 磁盘上还有更早的记录时必须追加到磁盘，保证先进先出
+        if (spillDir == null || (spilled == 0 && hot.size() < hotCapacity)) {
+            hot.addLast(value);
+            return;
+        }
+        try {
+            append(value.getBytes(StandardCharsets.UTF_8));
+            spilled++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入待爬队列分段文件失败", e);
+        }
+    }
+
+    String poll() {
+        if (hot.isEmpty() && spilled > 0) {
+            try {
+                refill();
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取待爬队列分段文件失败", e);
+            }
+        }
+        return hot.pollFirst();
+    }
+
+    boolean isEmpty() {
+        return hot.isEmpty() && spilled == 0;
+    }
+
+    long size() {
+        return hot.size() + spilled;
+    }
+
+    /** 当前保存在磁盘上的记录数 */
+    long spilledCount() {
+        return spilled;
+    }
+
+    /** 删除全部分段文件 */
+    void clear() {
+        hot.clear();
+        spilled = 0;
+        try {
+            while (!segments.isEmpty()) {
+                segments.pollFirst().delete();
+            }
+        } catch (IOException e) {
+            System.err.println("删除待爬队列分段文件失败：" + e.getMessage());
+        }
+    }
+
+    // 队列内容不跨进程保留，上次异常退出留下的同名分段文件已无用，打开时删除，避免与新分段重名
+    private void deleteStaleSegments() {
+        if (spillDir == null || !Files.isDirectory(spillDir)) return;
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(spillDir, filePrefix + "-*.seg")) {
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            System.err.println("清理旧的待爬队列分段文件失败：" + e.getMessage());
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        int needed = Integer.BYTES + bytes.length;
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.buffer.capacity() - tail.writePos < needed) {
+            Files.createDirectories(spillDir);
+            Path path = spillDir.resolve(String.format("%s-%06d.seg", filePrefix, ++segmentSeq));
+            tail = new Segment(path, Math.max(segmentBytes, needed));
+            segments.addLast(tail);
+        }
+        tail.buffer.putInt(tail.writePos, bytes.length);
+        tail.buffer.put(tail.writePos + Integer.BYTES, bytes);
+        tail.writePos += needed;
+    }
+
+    // 从最早的分段读回一批记录，读完的分段删除
+    private void refill() throws IOException {
+        while (hot.size() < hotCapacity && spilled > 0) {
+            Segment head = segments.peekFirst();
+            if (head.readPos >= head.writePos) {
+                segments.pollFirst().delete();
+                continue;
+            }
+            int length = head.buffer.getInt(head.readPos);
+            byte[] bytes = new byte[length];
+            head.buffer.get(head.readPos + Integer.BYTES, bytes);
+            head.readPos += Integer.BYTES + length;
+            hot.addLast(new String(bytes, StandardCharsets.UTF_8));
+            spilled--;
+        }
+        Segment head = segments.peekFirst();
+        if (head != null && head.readPos >= head.writePos && head != segments.peekLast()) {
+            segments.pollFirst().delete();
+        }
+    }
+
+    // 尽早释放映射，避免 Windows 下映射未回收时无法删除文件
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 无法主动释放时交由 GC 回收
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package cn.myh.java;
+
+import org.jsoup.Connection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Locale;
+
+/**
+ * 流式图片下载
+ * 先根据响应头校验内容类型和声明长度，再把响应体按 64KB 分块写入临时文件，
+ * 超过大小上限时中途放弃；写完后原子重命名为目标文件。
+ * 整个响应体不会进入堆内存，同时下载的图片再多、再大，堆占用也保持平稳。
+ * Jsoup 只提供响应体的 InputStream，拿不到底层 socket 通道，无法做到 socket 到文件的零拷贝，
+ * 因此直接用堆内数组分块复制，不再使用直接缓冲区。
+ */
+public final class StreamingDownloader {
+    public static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024; // 单张图片大小上限
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private StreamingDownloader() {}
+
+    /**
+     * 执行请求并把图片流式写入目标文件
+     * @param conn     已设置好请求头的连接，内容类型与大小限制由本方法接管
+     * @param target   目标文件，所在目录不存在时自动创建
+     * @param maxBytes 大小上限，超过时放弃下载
+     * @param minBytes 大小下限，不足时视为无效图片
+     * @return 写入的字节数
+     * @throws IOException 请求失败、内容类型不是图片、超出大小限制或写入失败时抛出，且不会留下目标文件
+     */
+    public static long download(Connection conn, Path target, long maxBytes, long minBytes) throws IOException {
+        return download(conn, target, maxBytes, minBytes, null);
+    }
+
+    /**
+     * 同上，并在写入的同时用 digest 计算内容摘要（可为 null）
+     */
+    public static long download(Connection conn, Path target, long maxBytes, long minBytes,
+                                MessageDigest digest) throws IOException {
+        Connection.Response response = conn
+                .ignoreContentType(true)
+                .maxBodySize(0) // 大小由本方法边读边检查
+                .execute();
+
+        try (InputStream in = response.bodyStream()) {
+            // 读取响应体之前先校验响应头，不合格时直接关闭连接
+            String contentType = response.contentType();
+            if (contentType != null && !contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+                throw new IOException("无效的图片内容类型：" + contentType);
+            }
+            long declared = contentLength(response);
+            if (declared > maxBytes) {
+                throw new IOException("图片大小 " + declared + " 字节超过限制 " + maxBytes + " 字节");
+            }
+
+            Path dir = target.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path temp = target.resolveSibling(target.getFileName() + ".part");
+            boolean completed = false;
+            try {
+                long written = copy(in, temp, maxBytes, digest);
+                if (written < minBytes) {
+                    throw new IOException("下载的图片文件过小（" + written + " 字节），可能是无效图片");
+                }
+                moveAtomically(temp, target);
+                completed = true;
+                return written;
+            } finally {
+                if (!completed) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    // 从响应流分块写入文件，超出上限立即中止
+    private static long copy(InputStream in, Path temp, long maxBytes, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            long total = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+                if (total > maxBytes) {
+                    throw new IOException("图片超过大小限制 " + maxBytes + " 字节，已中止下载");
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, n);
+                }
+                out.write(buffer, 0, n);
+            }
+            return total;
+        }
+    }
+
+    static void moveAtomically(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long contentLength(Connection.Response response) {
+        String value = response.header("Content-Length");
+        if (value == null) return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
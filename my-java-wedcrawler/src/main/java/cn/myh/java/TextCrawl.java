@@ -3,13 +3,13 @@ package cn.myh.java;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
+import java.util.List;
 import java.util.Random;
 //https://sanguo.5000yan.com/    demowite
 public class TextCrawl {
@@ -31,9 +31,9 @@ public class TextCrawl {
             String title = document.title();
             System.out.println("页面标题：" + title);
 
-            // 提取正文内容
-            Elements contentElements = document.select("div");
-            if (contentElements.isEmpty()) {
+            // 提取正文内容：按文字与链接密度找出正文区域，导航、页脚等不输出
+            List<String> paragraphs = ContentExtractor.extract(document.body());
+            if (paragraphs.isEmpty()) {
                 System.out.println("未找到正文内容");
                 return;
             }
@@ -42,11 +42,8 @@ public class TextCrawl {
             content.append("标题：").append(title).append("\n\n");
 
             // 提取正文段落
-            for (Element element : contentElements) {
-                String text = element.text().trim();
-                if (!text.isEmpty()) {
-                    content.append(text).append("\n\n");
-                }
+            for (String paragraph : paragraphs) {
+                content.append(paragraph).append("\n\n");
             }
 
             // 生成文件名
@@ -56,16 +53,10 @@ public class TextCrawl {
             String fileName = prefix + "_" + randomNum + ".txt";
             File outputFile = new File("D:\\新建文件夹\\" + fileName);
 
-            // 确保目录存在
-            outputFile.getParentFile().mkdirs();
-
-            // 写入文件
-            try (FileWriter writer = new FileWriter(outputFile)) {
-                writer.write(content.toString());
-                System.out.println("成功保存文本内容到：" + outputFile.getAbsolutePath());
-            } catch (IOException e) {
-                System.err.println("保存文件失败：" + e.getMessage());
-            }
+            // 只写一个文件，直接写入，不必启动异步写线程
+            Files.createDirectories(outputFile.toPath().toAbsolutePath().getParent());
+            Files.write(outputFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+            System.out.println("成功保存文本内容到：" + outputFile.getAbsolutePath());
 
         } catch (IOException e) {
             System.err.println("爬取过程发生错误：" + e.getMessage());
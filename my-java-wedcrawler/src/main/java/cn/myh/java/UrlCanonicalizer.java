@@ -0,0 +1,187 @@
+package cn.myh.java;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * URL 规范化与指纹
+ * 统一处理相对链接解析、协议与主机大小写、默认端口、"." / ".." 路径段、查询参数顺序和锚点，
+ * 各爬虫的去重与待爬队列都以规范化后的 64 位指纹为键。
+ */
+public final class UrlCanonicalizer {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private UrlCanonicalizer() {}
+
+    /**
+     * 规范化绝对 URL，非 http/https 或无法解析时返回 null
+     */
+    public static String canonicalize(String url) {
+        return resolve(null, url);
+    }
+
+    /**
+     * 按所在页面解析链接并规范化；"//host/path" 形式在没有基准地址时按 https 处理
+     * @param base 所在页面地址，可为 null
+     * @return 规范化后的绝对 URL，javascript:/mailto: 等非网页链接或无法解析时返回 null
+     */
+    public static String resolve(String base, String href) {
+        if (href == null) return null;
+        String link = href.trim();
+        if (link.isEmpty() || hasIgnoredScheme(link)) return null;
+        try {
+            URI uri = new URI(encodeIllegal(link));
+            if (!uri.isAbsolute()) {
+                if (base != null) {
+                    URI baseUri = new URI(encodeIllegal(base.trim()));
+                    if (baseUri.getRawPath() == null || baseUri.getRawPath().isEmpty()) {
+                        // 修正 URI.resolve 对空路径基准地址的拼接问题（http://a.com + b -> http://a.comb）
+                        baseUri = new URI(baseUri.getScheme(), baseUri.getRawAuthority(), "/", null, null);
+                    }
+                    uri = baseUri.resolve(uri);
+                } else if (link.startsWith("//")) {
+                    uri = new URI("https:" + encodeIllegal(link));
+                } else {
+                    return null;
+                }
+            }
+            return build(uri);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 规范化后的 64 位指纹；无法规范化的 URL 直接对原文计算
+     */
+    public static long fingerprint(String url) {
+        String canonical = canonicalize(url);
+        return fingerprintCanonical(canonical != null ? canonical : url);
+    }
+
+    /**
+     * 已规范化 URL（resolve/canonicalize 的结果）的 64 位指纹，不再重新解析
+     */
+    public static long fingerprintCanonical(String canonical) {
+        return Fingerprints.fp64(canonical);
+    }
+
+    /**
+     * 小写主机名，无法解析时返回空串
+     */
+    public static String host(String url) {
+        if (url == null) return "";
+        try {
+            String host = new URI(encodeIllegal(url.trim())).getHost();
+            return host != null ? normalizeHost(host) : "";
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+
+    /**
+     * 是否与给定主机相同（精确比较，不做子串匹配）
+     */
+    public static boolean isSameHost(String url, String host) {
+        return !host.isEmpty() && host.equalsIgnoreCase(host(url));
+    }
+
+    private static String build(URI uri) {
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) return null;
+        String host = uri.getHost();
+        if (host == null || host.isEmpty()) return null;
+
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            sb.append(uri.getRawUserInfo()).append('@');
+        }
+        sb.append(normalizeHost(host));
+        int port = uri.getPort();
+        if (port != -1 && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+            sb.append(':').append(port);
+        }
+        String path = uri.getRawPath();
+        sb.append(path == null || path.isEmpty() ? "/" : removeDotSegments(path));
+        String query = sortQuery(uri.getRawQuery());
+        if (query != null) {
+            sb.append('?').append(query);
+        }
+        return sb.toString(); // 锚点不参与规范化结果
+    }
+
+    private static String normalizeHost(String host) {
+        host = host.toLowerCase(Locale.ROOT);
+        return host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+    }
+
+    // RFC 3986 5.2.4：移除 "." 与 ".." 路径段
+    private static String removeDotSegments(String path) {
+        if (path.indexOf('.') < 0) return path;
+        Deque<String> out = new ArrayDeque<>();
+        String[] segments = path.split("/", -1);
+        for (int i = 1; i < segments.length; i++) {
+            String seg = segments[i];
+            boolean last = i == segments.length - 1;
+            if (seg.equals(".")) {
+                if (last) out.addLast("");
+            } else if (seg.equals("..")) {
+                out.pollLast();
+                if (last) out.addLast("");
+            } else {
+                out.addLast(seg);
+            }
+        }
+        return "/" + String.join("/", out);
+    }
+
+    // 去掉空参数并按字典序排序，使参数顺序不同的同一地址得到相同结果
+    private static String sortQuery(String query) {
+        if (query == null || query.isEmpty()) return null;
+        String[] params = Arrays.stream(query.split("&"))
+                .filter(p -> !p.isEmpty())
+                .sorted()
+                .toArray(String[]::new);
+        return params.length == 0 ? null : String.join("&", params);
+    }
+
+    private static boolean hasIgnoredScheme(String link) {
+        String lower = link.length() > 11 ? link.substring(0, 11).toLowerCase(Locale.ROOT) : link.toLowerCase(Locale.ROOT);
+        return lower.startsWith("javascript:") || lower.startsWith("mailto:")
+                || lower.startsWith("tel:") || lower.startsWith("data:");
+    }
+
+    // 对空格、中文等 URI 不允许的字符按 UTF-8 百分号编码，已有的合法 %XX 保持不变
+    private static String encodeIllegal(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean legal = c > 0x20 && c < 0x7f && "\"<>\\^`{|} ".indexOf(c) < 0
+                    && (c != '%' || (i + 2 < s.length() && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2))));
+            if (legal) {
+                if (sb != null) sb.append(c);
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(s.length() + 16);
+                sb.append(s, 0, i);
+            }
+            int end = Character.isHighSurrogate(c) && i + 1 < s.length() ? i + 2 : i + 1;
+            for (byte b : s.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                sb.append('%').append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+            }
+            i = end - 1;
+        }
+        return sb != null ? sb.toString() : s;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
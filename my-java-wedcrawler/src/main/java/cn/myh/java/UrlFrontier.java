@@ -0,0 +1,166 @@
+package cn.myh.java;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * URL 待爬队列（Frontier）
+ * 按优先级分桶存放 URL，同一优先级内先进先出；配合 "已见" 索引（VisitedStore），
+ * 入队、去重、出队均为常数时间，供各爬虫共用。URL 须在入队前规范化。
+ * 指定溢出目录时，每个优先级桶只在内存中保留队首一小段，其余写入内存映射的分段文件，
+ * 队列长度受磁盘而非堆内存限制。溢出目录在使用期间持有锁文件，同一目录不能同时被两个队列使用。
+ */
+public class UrlFrontier implements AutoCloseable {
+    public static final int MIN_PRIORITY = 0;
+    public static final int MAX_PRIORITY = 10;
+    public static final int DEFAULT_HOT_CAPACITY = 1024; // 溢出模式下每个优先级桶在内存中保留的URL数
+
+    private final SpillQueue[] bands;
+    private final VisitedStore seen; // 入过队的URL，不随出队移除
+    private final FileChannel lockChannel; // 溢出目录锁，未溢出时为 null
+    private long size = 0;
+    private int highestBand = -1; // 当前非空的最高优先级桶，-1 表示队列为空
+
+    public UrlFrontier() {
+        this(FingerprintVisitedStore.withDefaults());
+    }
+
+    public UrlFrontier(VisitedStore seen) {
+        this(seen, null, DEFAULT_HOT_CAPACITY);
+    }
+
+    /**
+     * @param seen        已见 URL 集合
+     * @param spillDir    溢出分段文件目录，null 表示全部保存在内存中
+     * @param hotCapacity 每个优先级桶在内存中保留的 URL 数
+     * @throws IllegalStateException 溢出目录正被其他队列（含其他进程）使用
+     */
+    public UrlFrontier(VisitedStore seen, Path spillDir, int hotCapacity) {
+        this.seen = seen;
+        // 先锁住目录再创建分段队列，分段队列打开时会清理目录中的旧分段文件
+        this.lockChannel = spillDir != null ? lock(spillDir) : null;
+        bands = new SpillQueue[MAX_PRIORITY - MIN_PRIORITY + 1];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new SpillQueue(spillDir, "band" + (i + MIN_PRIORITY), hotCapacity);
+        }
+    }
+
+    /**
+     * 以指定优先级入队，URL 已见过时忽略
+     * @return 是否为新 URL
+     */
+    public synchronized boolean offer(String url, int priority) {
+        if (url == null || !seen.add(url)) {
+            return false;
+        }
+        int band = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority)) - MIN_PRIORITY;
+        bands[band].add(url);
+        size++;
+        if (band > highestBand) {
+            highestBand = band;
+        }
+        return true;
+    }
+
+    /**
+     * 取出优先级最高的 URL，队列为空时返回 null
+     */
+    public synchronized String poll() {
+        while (highestBand >= 0) {
+            String url = bands[highestBand].poll();
+            if (url != null) {
+                size--;
+                return url;
+            }
+            highestBand--;
+        }
+        return null;
+    }
+
+    /**
+     * 标记 URL 为已见但不入队（如起始页已处理、外部已访问）
+     * @return 是否为新 URL
+     */
+    public synchronized boolean markSeen(String url) {
+        return seen.add(url);
+    }
+
+    public synchronized boolean isSeen(String url) {
+        return seen.contains(url);
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** 当前待爬的 URL 数量（含磁盘上的部分） */
+    public synchronized long size() {
+        return size;
+    }
+
+    /** 当前溢出到磁盘的 URL 数量 */
+    public synchronized long spilledCount() {
+        long spilled = 0;
+        for (SpillQueue band : bands) {
+            spilled += band.spilledCount();
+        }
+        return spilled;
+    }
+
+    /** 累计见过的 URL 数量 */
+    public synchronized long seenCount() {
+        return seen.size();
+    }
+
+    /** 清空队列、删除溢出分段文件并释放目录锁 */
+    @Override
+    public synchronized void close() {
+        for (SpillQueue band : bands) {
+            band.clear();
+        }
+        size = 0;
+        highestBand = -1;
+        if (lockChannel != null && lockChannel.isOpen()) {
+            try {
+                lockChannel.close(); // 同时释放锁
+            } catch (IOException e) {
+                System.err.println("释放待爬队列目录锁失败：" + e.getMessage());
+            }
+        }
+    }
+
+    private static FileChannel lock(Path spillDir) {
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(spillDir);
+            channel = FileChannel.open(spillDir.resolve("frontier.lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new OverlappingFileLockException();
+            }
+            return channel;
+        } catch (OverlappingFileLockException e) {
+            closeQuietly(channel);
+            throw new IllegalStateException("待爬队列溢出目录正被其他爬虫使用：" + spillDir);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("无法锁定待爬队列溢出目录：" + spillDir, e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已在处理更早的错误
+        }
+    }
+}
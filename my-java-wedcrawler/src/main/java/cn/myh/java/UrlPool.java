@@ -1,85 +1,89 @@
 package cn.myh.java;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.Paths;
+import java.util.Locale;
 
 /*URL池存储链接*/
 public class UrlPool {
+    private static final int MAX_PAGES = Integer.getInteger("urlpool.maxPages", 1000); // 最多抓取的页面数
+    private static final int REQUEST_DELAY_MS = 200; // 同一主机请求间隔（毫秒）
+    private static final int TIMEOUT_MS = 10000;
+    private static final HtmlAttributeScanner LINK_SCANNER = new HtmlAttributeScanner("a", "href");
+    private static final HostScheduler scheduler = new HostScheduler(REQUEST_DELAY_MS, 0);
+    // 待爬队列溢出分段文件目录，内存中只保留各优先级队首
+    private static final String FRONTIER_DIR = System.getProperty("urlpool.frontierDir", "./data/urlpool-frontier");
+
     public static void main(String[] args) {
         getUrl("https://www.nipic.com/"); // 爬取首页地址
     }
 
+    // 迭代式广度优先遍历：待爬队列与已见指纹集合都有界，每个链接只抓取一次
     private static void getUrl(String baseUrl) {
-        Map<String, Boolean> oldMap = new LinkedHashMap<>(); // oldMap映射存储已经访问过的链接，boolean值表示是否访问过
-        Pattern pattern = Pattern.compile("(https?://)?[^/\\s]*"); // 决定路径：正则表达式匹配首页网站和站内链接
-        Matcher matcher = pattern.matcher(baseUrl);
-        String oldLinkHost = "";
-        // 找到新匹配，存储到以访问的Map中
-        if (matcher.find()) {
-            oldLinkHost = matcher.group();
-        }
-        oldMap.put(baseUrl, false);
-        oldMap = crawlerLinks(oldLinkHost, oldMap);
-        for (Map.Entry<String, Boolean> mapping : oldMap.entrySet()) {
-            System.out.println("链接：" + mapping.getKey());
+        String baseHost = UrlCanonicalizer.host(baseUrl);
+        try (UrlFrontier frontier = new UrlFrontier(FingerprintVisitedStore.withDefaults(),
+                Paths.get(FRONTIER_DIR), UrlFrontier.DEFAULT_HOT_CAPACITY)) { // 关闭时删除溢出分段文件
+            frontier.offer(UrlCanonicalizer.canonicalize(baseUrl), UrlFrontier.MAX_PRIORITY);
+
+            int fetched = 0;
+            String pageUrl;
+            while (fetched < MAX_PAGES && (pageUrl = frontier.poll()) != null) {
+                fetched++;
+                System.out.println("链接：" + pageUrl + "---ChecksStatus_true (" + fetched + "/" + MAX_PAGES + ")");
+                crawlerLinks(pageUrl, baseHost, frontier);
+            }
+            System.out.println("遍历结束，共抓取页面 " + fetched + " 个，发现链接 " + frontier.seenCount() + " 个");
         }
     }
 
-    private static Map<String, Boolean> crawlerLinks(String oldLinkHost, Map<String, Boolean> oldMap) {
-        Map<String, Boolean> newMap = new LinkedHashMap<>(); // 创建新Map判断是否是遍历过的http
-        String oldLink = "";
-        for (Map.Entry<String, Boolean> mapping : oldMap.entrySet()) {
-            if (!mapping.getValue()) {
-                try {
-                    oldLink = mapping.getKey();
-                    System.out.println("链接：" + mapping.getKey() + "---ChecksStatus_" + mapping.getValue());
-                    URL url = new URL(oldLink);
-                    HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
-                    httpURLConnection.setRequestMethod("GET");
-                    if (httpURLConnection.getResponseCode() == 200) {
-                        BufferedReader reader = new BufferedReader(
-                                new InputStreamReader(httpURLConnection.getInputStream()));
-                        Pattern pattern = Pattern
-                                .compile("<a.*?href=[\\\"']?((https?://)?/?[^\\\"']+)[\\\"']?.*?>(.+)</a>");
-                        Matcher matcher = null;
-                        String line = "";
-                        while ((line = reader.readLine()) != null) {
-                            matcher = pattern.matcher(line);
-                            if (matcher.find()) {
-                                String newLink = matcher.group(1).trim();
-                                if (!newLink.startsWith("http")) {
-                                    if (newLink.startsWith("/")) {
-                                        newLink = oldLinkHost + newLink;
-                                    } else {
-                                        newLink = oldLinkHost + "/" + newLink;
-                                    }
-                                }
-                                if (newLink.endsWith("/")) {
-                                    newLink = newLink.substring(0, newLink.length() - 1);
-                                }
-                                if (!newMap.containsKey(newLink) && !oldMap.containsKey(newLink)
-                                        && newLink.contains(oldLinkHost)) {
-                                    newMap.put(newLink, false);
-                                }
-                            }
-                        }
+    // 抓取单个页面，边读取响应流边提取链接
+    private static void crawlerLinks(String pageUrl, String baseHost, UrlFrontier frontier) {
+        HttpURLConnection httpURLConnection = null;
+        try {
+            scheduler.acquire(pageUrl);
+            httpURLConnection = (HttpURLConnection) new URL(pageUrl).openConnection();
+            httpURLConnection.setRequestMethod("GET");
+            httpURLConnection.setConnectTimeout(TIMEOUT_MS);
+            httpURLConnection.setReadTimeout(TIMEOUT_MS);
+            if (httpURLConnection.getResponseCode() != 200) {
+                System.err.println("请求失败：" + pageUrl + "，状态码：" + httpURLConnection.getResponseCode());
+                return;
+            }
+            // 响应头未声明编码时按页面开头的 <meta charset> 解码
+            try (Reader reader = LinkScanner.reader(httpURLConnection.getInputStream(),
+                    declaredCharset(httpURLConnection.getContentType()))) {
+                LINK_SCANNER.scan(reader, (tag, attr, href) -> {
+                    String newLink = UrlCanonicalizer.resolve(pageUrl, href);
+                    if (newLink != null && UrlCanonicalizer.isSameHost(newLink, baseHost)
+                            && frontier.offer(newLink, UrlFrontier.MIN_PRIORITY)) {
+                        System.out.println("链接：" + newLink + "---ChecksStatus_false");
                     }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("抓取失败：" + pageUrl + "，错误：" + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (httpURLConnection != null) {
+                httpURLConnection.disconnect();
             }
         }
-        oldMap.replace(oldLink, false, true);
-        if (!newMap.isEmpty()) {
-            oldMap.putAll(newMap);
-            oldMap.putAll(crawlerLinks(oldLinkHost, oldMap));
+    }
+
+    // Content-Type 中声明的编码名，未声明时返回 null
+    private static String declaredCharset(String contentType) {
+        if (contentType != null) {
+            int idx = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (idx >= 0) {
+                String charset = contentType.substring(idx + 8);
+                int end = charset.indexOf(';');
+                return (end >= 0 ? charset.substring(0, end) : charset).replace("\"", "").trim();
+            }
         }
-        return oldMap;
+        return null;
     }
 }
@@ -0,0 +1,20 @@
+package cn.myh.java;
+
+/**
+ * 已访问URL集合
+ * 爬虫只依赖该接口，可在堆内字符串集合与紧凑的指纹表之间切换。
+ * 传入的 URL 须已规范化（UrlCanonicalizer.resolve/canonicalize 的结果），实现不再重复规范化。
+ */
+public interface VisitedStore {
+
+    /**
+     * 记录 URL
+     * @return URL 此前未出现过时返回 true
+     */
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    /** 已记录的 URL 数量 */
+    long size();
+}